@@ -0,0 +1,98 @@
+import java.math.BigInteger;
+
+/**
+ * Aritmética inteira sem estouro usada pelas ações do parser.cup.
+ *
+ * Um valor é um Long enquanto couber em 64 bits e um BigInteger só quando não
+ * couber. As operações tentam primeiro os Math.*Exact sobre long; só um
+ * estouro de fato leva ao BigInteger, e um resultado que volta a caber em
+ * long volta a ser Long. Assim o caso comum não paga o custo do BigInteger.
+ *
+ * Como antes, operar com null (variável não definida) lança
+ * NullPointerException.
+ */
+final class Aritmetica {
+
+    private Aritmetica() {
+    }
+
+    /**
+     * Valor de um literal decimal sem sinal, de qualquer tamanho. Até 18
+     * dígitos (que sempre cabem em long) não cria String, então serve direto
+     * para um Lexema.
+     */
+    static Number literal(CharSequence digitos) {
+        int n = digitos.length();
+        if (n <= 18) {
+            long v = 0;
+            for (int i = 0; i < n; i++) {
+                v = v * 10 + (digitos.charAt(i) - '0');
+            }
+            return Long.valueOf(v);
+        }
+        return normalizar(new BigInteger(digitos.toString()));
+    }
+
+    static Number soma(Number a, Number b) {
+        if (a instanceof Long && b instanceof Long) {
+            try {
+                return Math.addExact(a.longValue(), b.longValue());
+            } catch (ArithmeticException e) {
+                // estourou: refaz em BigInteger
+            }
+        }
+        return normalizar(grande(a).add(grande(b)));
+    }
+
+    static Number subtrai(Number a, Number b) {
+        if (a instanceof Long && b instanceof Long) {
+            try {
+                return Math.subtractExact(a.longValue(), b.longValue());
+            } catch (ArithmeticException e) {
+                // estourou: refaz em BigInteger
+            }
+        }
+        return normalizar(grande(a).subtract(grande(b)));
+    }
+
+    static Number multiplica(Number a, Number b) {
+        if (a instanceof Long && b instanceof Long) {
+            try {
+                return Math.multiplyExact(a.longValue(), b.longValue());
+            } catch (ArithmeticException e) {
+                // estourou: refaz em BigInteger
+            }
+        }
+        return normalizar(grande(a).multiply(grande(b)));
+    }
+
+    static Number nega(Number a) {
+        if (a instanceof Long) {
+            try {
+                return Math.negateExact(a.longValue());
+            } catch (ArithmeticException e) {
+                // -Long.MIN_VALUE
+            }
+        }
+        return normalizar(grande(a).negate());
+    }
+
+    /** O valor como Long, se couber, ou o próprio BigInteger. */
+    static Number normalizar(BigInteger v) {
+        if (cabeEmLong(v)) {
+            return Long.valueOf(v.longValue());
+        }
+        return v;
+    }
+
+    static boolean cabeEmLong(BigInteger v) {
+        return v.bitLength() < 64;
+    }
+
+    static BigInteger grande(Number v) {
+        if (v == null) {
+            throw new NullPointerException("operação com valor null");
+        }
+        return v instanceof BigInteger ? (BigInteger) v : BigInteger.valueOf(v.longValue());
+    }
+}
@@ -0,0 +1,394 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import java_cup.runtime.Symbol;
+
+/**
+ * Avaliador para entradas com aninhamento muito profundo.
+ *
+ * O lr_parser do CUP guarda um Symbol (com o valor em caixa) por nível na
+ * java.util.Stack; com milhões de "(" ou "-" seguidos isso passa de 100 bytes
+ * por nível. Aqui as mesmas tabelas LALR do Parser são percorridas por um laço
+ * próprio, com a pilha de estados em short[] (2 bytes por nível, já que as
+ * tabelas do CUP são short) e, à parte, uma pilha com o índice de cada ID
+ * ainda não reduzido; as ações emitem instruções de Programa em vez de
+ * calcular com objetos. Ao fim de cada comando o trecho emitido roda numa
+ * Programa.Maquina, cuja pilha também é de primitivos. Nada é recursivo,
+ * então não há StackOverflowError em nenhuma profundidade.
+ *
+ * As ações abaixo repetem as do parser.cup, pelo número da produção; se a
+ * gramática mudar, a verificação em TAMANHOS acusa na carga da classe.
+ * Um erro de sintaxe descarta o comando até o próximo ';', como as produções
+ * com error do parser.cup. O que já tinha sido reduzido do comando roda antes,
+ * terminado por Programa.LIMPA: no Parser as ações rodam a cada redução, então
+ * em "y = 3 ) ;" o y já foi atribuído quando o ')' é rejeitado.
+ *
+ * Com --conferir, os CASOS passam pelo Parser e por este avaliador, que
+ * precisam imprimir o esperado e terminar com as mesmas variáveis.
+ *
+ * Uso: java AvaliadorIterativo (arquivo | --estresse N | --conferir)
+ */
+public final class AvaliadorIterativo {
+
+    // produções do parser.cup, na numeração do Parser gerado
+    private static final int ACEITA = 1;              // $START ::= inicio EOF
+    private static final int PRIMEIRO_COMANDO = 2;    // inicio ::= comando
+    private static final int IMPRESSAO = 6;           // impressao ::= exp
+    private static final int SOMA = 7;                // exp ::= exp MAIS exp
+    private static final int SUBTRAI = 8;             // exp ::= exp MENOS exp
+    private static final int MULTIPLICA = 9;          // exp ::= exp VEZES exp
+    private static final int NEGA = 10;               // exp ::= MENOS exp
+    private static final int NUMERO = 12;             // exp ::= NUMERO
+    private static final int CARREGA = 13;            // exp ::= ID
+    private static final int ARMAZENA = 14;           // exp ::= ID ATRIB exp
+
+    /** Tamanho do lado direito de cada produção, para conferir a numeração acima. */
+    private static final int[] TAMANHOS = {2, 2, 1, 2, 1, 2, 1, 3, 3, 3, 2, 3, 1, 1, 3};
+
+    /**
+     * Casos de --conferir: a entrada e o que os dois caminhos imprimem, com
+     * " erro" no fim se a avaliação termina numa exceção.
+     */
+    static final String[][] CASOS = {
+        {"1; 2; 3;", "[1, 2, 3]"},
+        {"a = 2; a * (a + 1); -a;", "[null, 6, -2]"},
+        // um erro logo no início de um comando não leva o comando anterior
+        {"7; * 3; 8;", "[7, 8]"},
+        {"7;\n* 3;\n8;", "[7, 8]"},
+        {"1; ) 3; 4;", "[1, 4]"},
+        {"1; 2; = 3; 4;", "[1, 2, 4]"},
+        {"* 1; 2;", "[2]"},
+        {"1 2; 3;", "[3]"},
+        // ';' sozinho é um comando vazio
+        {"1; 2; ; 3;", "[1, 2, 3]"},
+        {"5; ;", "[5]"},
+        {"1;;;2;", "[1, 2]"},
+        {"1", "[] erro"},
+        // o que foi reduzido antes do erro já rodou no Parser
+        {"y = 3 ) ; y;", "[3]"},
+        {"a = 1; b = 2; = 3; a; b;", "[null, null, 1, 2]"},
+        {"a = 1; b = a + 2 ) ; b;", "[null, 3]"},
+        {"z + 1; ; 3;", "[] erro"},
+        {"z + 1 ) ; 3;", "[] erro"},
+    };
+
+    private static final short[][] PRODUCOES = Parser._production_table;
+    private static final short[][] ACOES = Parser._action_table;
+    private static final short[][] DESVIOS = Parser._reduce_table;
+    private static final int INICIO = PRODUCOES[PRIMEIRO_COMANDO][0];
+
+    static {
+        boolean confere = PRODUCOES.length == TAMANHOS.length;
+        for (int p = 0; confere && p < TAMANHOS.length; p++) {
+            confere = PRODUCOES[p][1] == TAMANHOS[p];
+        }
+        if (!confere) {
+            throw new IllegalStateException("AvaliadorIterativo desatualizado em relação ao parser.cup");
+        }
+    }
+
+    private final Consumer<Number> saida;
+    private final Programa.Construtor programa = new Programa.Construtor();
+    private final Programa.Maquina maquina;
+    private Diagnosticos diagnosticos;
+    private short[] estados = new short[64];
+    private int topo;
+    private int[] nomes = new int[16];       // índice do nome de cada ID empilhado e ainda não reduzido
+    private int topoNomes;
+    private int profundidadeMaxima;
+    private int errosSintaticos;
+
+    /**
+     * @param simbolos tabela lida e atualizada a cada avaliação; com null, cada
+     *                 avaliação começa sem variáveis e não guarda nenhuma
+     * @param saida    recebe o valor de cada comando (sem caixa, se for um Programa.SaidaLong)
+     */
+    public AvaliadorIterativo(Map<String, Number> simbolos, Consumer<Number> saida) {
+        this.saida = saida;
+        this.maquina = new Programa.Maquina(simbolos);
+    }
+
+    /** Manda os erros de sintaxe para d em vez do console (null desfaz). */
+    public void diagnosticar(Diagnosticos d) {
+        diagnosticos = d;
+    }
+
+    /** Erros de sintaxe na última avaliação. */
+    public int errosSintaticos() {
+        return errosSintaticos;
+    }
+
+    /** Maior altura que a pilha de estados atingiu na última avaliação. */
+    public int profundidadeMaxima() {
+        return profundidadeMaxima;
+    }
+
+    /**
+     * Analisa e avalia todos os comandos da fonte, até o EOF. Se a fonte for
+     * um Scanner, os IDs vêm como Lexema durante a avaliação: cada nome é
+     * consultado antes do próximo token e só é copiado na primeira vez.
+     */
+    public void avaliar(java_cup.runtime.Scanner fonte) throws Exception {
+        Scanner scanner = fonte instanceof Scanner ? (Scanner) fonte : null;
+        boolean usavaLexemas = scanner != null && scanner.usandoLexemas();
+        if (scanner != null) {
+            scanner.usarLexemas(true);
+        }
+        // o construtor e a máquina são reaproveitados de uma avaliação para outra
+        programa.reiniciar();
+        maquina.reiniciar();
+        Number literal = null;
+        topo = 0;
+        estados[0] = 0;
+        topoNomes = -1;
+        profundidadeMaxima = 0;
+        errosSintaticos = 0;
+        try {
+            Symbol token = fonte.next_token();
+            while (true) {
+                int acao = acao(estados[topo], token.sym);
+                if (acao > 0) {
+                    if (token.sym == Tokens.ID) {
+                        empilharNome(programa.nome((CharSequence) token.value));
+                    } else if (token.sym == Tokens.NUMERO) {
+                        literal = (Number) token.value;
+                    }
+                    empilhar(acao - 1);
+                    token = fonte.next_token();
+                } else if (acao < 0) {
+                    int p = -acao - 1;
+                    switch (p) {
+                        case ACEITA:
+                            return;
+                        case IMPRESSAO:
+                            programa.emitir(Programa.IMPRIME);
+                            programa.executarTrecho(maquina, saida);
+                            break;
+                        case SOMA:
+                            programa.emitir(Programa.SOMA);
+                            break;
+                        case SUBTRAI:
+                            programa.emitir(Programa.SUBTRAI);
+                            break;
+                        case MULTIPLICA:
+                            programa.emitir(Programa.MULTIPLICA);
+                            break;
+                        case NEGA:
+                            programa.emitir(Programa.NEGA);
+                            break;
+                        case NUMERO:
+                            programa.emitirNumero(literal);
+                            break;
+                        case CARREGA:
+                            // cada ID é reduzido uma única vez, por esta produção ou a
+                            // seguinte, e na ordem inversa à que foi empilhado
+                            programa.emitir(Programa.CARREGA, nomes[topoNomes--]);
+                            break;
+                        case ARMAZENA:
+                            programa.emitir(Programa.ARMAZENA, nomes[topoNomes--]);
+                            break;
+                        default:
+                            // ( exp ), comando, ';' vazio: nada a emitir
+                    }
+                    topo -= PRODUCOES[p][1];
+                    empilhar(desvio(estados[topo], PRODUCOES[p][0]));
+                } else {
+                    programa.emitir(Programa.LIMPA);
+                    programa.executarTrecho(maquina, saida);
+                    token = recuperar(token, fonte);
+                    topo = 0;
+                    topoNomes = -1;
+                    empilhar(desvio(0, INICIO));
+                }
+            }
+        } finally {
+            maquina.descarregar();
+            if (scanner != null) {
+                scanner.usarLexemas(usavaLexemas);
+            }
+        }
+    }
+
+    /** Registra o erro e pula até depois do próximo ';'. */
+    private Symbol recuperar(Symbol token, java_cup.runtime.Scanner fonte) throws Exception {
+        errosSintaticos++;
+        Diagnosticos d = diagnosticos != null ? diagnosticos : new Diagnosticos(1);
+        d.registrar(Diagnosticos.SINTATICO, token.left, token.right, token.sym);
+        if (diagnosticos == null) {
+            System.out.println(d.mensagem(0));
+        }
+        while (token.sym != Tokens.SEMI) {
+            if (token.sym == Tokens.EOF) {
+                throw new Exception("não foi possível recuperar do erro de sintaxe");
+            }
+            token = fonte.next_token();
+        }
+        return fonte.next_token();
+    }
+
+    private void empilhar(int estado) {
+        if (++topo == estados.length) {
+            estados = Arrays.copyOf(estados, estados.length * 2);
+        }
+        estados[topo] = (short) estado;
+        if (topo > profundidadeMaxima) {
+            profundidadeMaxima = topo;
+        }
+    }
+
+    private void empilharNome(int indice) {
+        if (++topoNomes == nomes.length) {
+            nomes = Arrays.copyOf(nomes, nomes.length * 2);
+        }
+        nomes[topoNomes] = indice;
+    }
+
+    /**
+     * Ação para o terminal no estado: >0 empilha (estado + 1), <0 reduz
+     * (produção + 1), 0 é erro. Mesma codificação e busca do lr_parser, que
+     * guarda cada linha como pares (terminal, ação) terminados pelo padrão -1.
+     */
+    private static int acao(int estado, int terminal) {
+        short[] linha = ACOES[estado];
+        for (int i = 0; i < linha.length; i += 2) {
+            if (linha[i] == terminal || linha[i] == -1) {
+                return linha[i + 1];
+            }
+        }
+        return 0;
+    }
+
+    /** Estado após reduzir para o não terminal, a partir do estado exposto. */
+    private static int desvio(int estado, int naoTerminal) {
+        short[] linha = DESVIOS[estado];
+        for (int i = 0; linha != null && i < linha.length; i += 2) {
+            if (linha[i] == naoTerminal || linha[i] == -1) {
+                return linha[i + 1];
+            }
+        }
+        throw new IllegalStateException("sem desvio para " + naoTerminal + " no estado " + estado);
+    }
+
+    /**
+     * Entrada sintética com três comandos de profundidade n, sem montá-la em
+     * memória: n parênteses em volta de 1, n menos unários antes de 2 e a
+     * soma aninhada 1+(1+(...)) (que também leva a pilha da Maquina a n).
+     */
+    static Reader estresse(long n) {
+        return new Repeticao(
+            new String[] {"(", "1", ")", ";\n", "-", "2;\n", "1+(", "1", ")", ";\n"},
+            new long[] {n, 1, n, 1, n, 1, n, 1, n, 1});
+    }
+
+    /** Reader que devolve cada parte repetida o número de vezes indicado. */
+    static final class Repeticao extends Reader {
+        private final String[] partes;
+        private final long[] vezes;
+        private int parte;
+        private long feitas;
+        private int pos;
+
+        Repeticao(String[] partes, long[] vezes) {
+            this.partes = partes;
+            this.vezes = vezes;
+        }
+
+        @Override
+        public int read(char[] destino, int inicio, int tamanho) {
+            int n = 0;
+            while (n < tamanho && parte < partes.length) {
+                if (feitas == vezes[parte]) {
+                    parte++;
+                    feitas = 0;
+                    continue;
+                }
+                String s = partes[parte];
+                destino[inicio + n++] = s.charAt(pos++);
+                if (pos == s.length()) {
+                    pos = 0;
+                    feitas++;
+                }
+            }
+            return n == 0 && tamanho > 0 ? -1 : n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Avalia cada caso pelo Parser e por um AvaliadorIterativo e confere a
+     * saída de cada um com a esperada e as duas tabelas de símbolos entre si.
+     * Imprime os casos que falharam e devolve quantos foram.
+     */
+    static int conferir(PrintStream relatorio) {
+        int falhas = 0;
+        for (String[] caso : CASOS) {
+            Map<String, Number> tabelaParser = new HashMap<String, Number>();
+            List<Number> saidaParser = new ArrayList<Number>();
+            String parser = null;
+            try {
+                Parser p = new Parser(new Scanner(new StringReader(caso[0])));
+                p.simbolos = tabelaParser;
+                p.saida = saidaParser::add;
+                p.diagnosticos = new Diagnosticos(16);
+                p.parse();
+            } catch (Exception e) {
+                parser = " erro";
+            }
+            parser = saidaParser + (parser != null ? parser : "");
+            Map<String, Number> tabelaIterativo = new HashMap<String, Number>();
+            List<Number> saidaIterativo = new ArrayList<Number>();
+            String iterativo = null;
+            try {
+                AvaliadorIterativo avaliador = new AvaliadorIterativo(tabelaIterativo, saidaIterativo::add);
+                avaliador.diagnosticar(new Diagnosticos(16));
+                avaliador.avaliar(new Scanner(new StringReader(caso[0])));
+            } catch (Exception e) {
+                iterativo = " erro";
+            }
+            iterativo = saidaIterativo + (iterativo != null ? iterativo : "");
+            if (!parser.equals(caso[1]) || !iterativo.equals(caso[1]) || !tabelaParser.equals(tabelaIterativo)) {
+                falhas++;
+                relatorio.printf("%s: esperado %s; Parser %s %s; AvaliadorIterativo %s %s%n",
+                    caso[0].replace("\n", "\\n"), caso[1], parser, tabelaParser, iterativo, tabelaIterativo);
+            }
+        }
+        relatorio.printf("# %d casos, %d falhas%n", CASOS.length, falhas);
+        return falhas;
+    }
+
+    public static void main(String[] args) {
+        try {
+            Reader entrada;
+            if (args.length == 1 && args[0].equals("--conferir")) {
+                conferir(System.out);
+                return;
+            } else if (args.length == 2 && args[0].equals("--estresse")) {
+                entrada = estresse(Long.parseLong(args[1]));
+            } else if (args.length == 1) {
+                entrada = new InputStreamReader(Files.newInputStream(Paths.get(args[0])), StandardCharsets.ISO_8859_1);
+            } else {
+                System.out.println("uso: java AvaliadorIterativo (arquivo | --estresse N | --conferir)");
+                return;
+            }
+            AvaliadorIterativo avaliador = new AvaliadorIterativo(new HashMap<String, Number>(), Parser.CONSOLE);
+            long inicio = System.nanoTime();
+            try (Reader r = entrada) {
+                avaliador.avaliar(new Scanner(r));
+            }
+            System.out.printf("# profundidade máxima %d, %d ms%n",
+                avaliador.profundidadeMaxima(), (System.nanoTime() - inicio) / 1000000);
+        }
+        catch(Exception e) { System.out.println(e.getMessage());}
+    }
+}
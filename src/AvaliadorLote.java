@@ -0,0 +1,233 @@
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Avaliação de muitos programas pequenos e independentes de uma vez.
+ *
+ * Os programas chegam num único texto, com o início de cada um num int[], e
+ * os resultados de todos os comandos saem em arrays primitivos, com o início
+ * dos de cada programa, sem passar por Consumer nem System.out.
+ *
+ * Um único Scanner, AvaliadorIterativo e Programa.Maquina atendem todos os
+ * programas: entre um e outro o scanner é reapontado (Scanner.reiniciar, sem
+ * novo buffer) e a máquina, que é a própria tabela de símbolos, é zerada no
+ * lugar. Cada programa começa sem variáveis e não vê as dos outros. O custo
+ * por programa fica em reiniciar esses objetos; os valores que cabem em long
+ * vão direto para o long[] (ver Programa.SaidaLong).
+ *
+ * Um erro (léxico, de sintaxe ou de execução) fica em {@link Resultados#erro}
+ * do programa; os comandos já avaliados até ele continuam nos resultados e os
+ * demais programas seguem normalmente. Não é thread-safe: use um por thread.
+ *
+ * Uso: java AvaliadorLote arquivo   (cada linha do arquivo é um programa)
+ */
+public final class AvaliadorLote {
+
+    // tipo de cada resultado
+    public static final byte VALOR = 0;    // o valor está em valores[i]
+    public static final byte NULO = 1;     // null (atribuição ou variável não definida)
+    public static final byte GRANDE = 2;   // valores[i] é o índice em Resultados.grande
+
+    private final PoolAnalisadores.LeitorTexto leitor = new PoolAnalisadores.LeitorTexto();
+    private final Scanner scanner = new Scanner(leitor);
+    private final Diagnosticos diagnosticos = new Diagnosticos(1);
+    private final Coletor coletor = new Coletor();
+    private final AvaliadorIterativo avaliador = new AvaliadorIterativo(null, coletor);
+    private final int capacidadeMaximaBuffer;
+
+    public AvaliadorLote() {
+        this(Scanner.CAPACIDADE_PADRAO);
+    }
+
+    /** @param capacidadeMaximaBuffer tamanho máximo (em chars) do buffer do scanner mantido entre programas */
+    public AvaliadorLote(int capacidadeMaximaBuffer) {
+        this.capacidadeMaximaBuffer = capacidadeMaximaBuffer;
+        scanner.diagnosticos = diagnosticos;
+        avaliador.diagnosticar(diagnosticos);
+    }
+
+    /** Resultados de um lote, em arrays do tamanho exato. */
+    public static final class Resultados {
+        /** Resultados do programa p estão em [inicios[p], inicios[p + 1]). */
+        public final int[] inicios;
+        public final long[] valores;
+        public final byte[] tipos;
+        private final BigInteger[] grandes;
+        private final String[] erros;
+
+        Resultados(int[] inicios, long[] valores, byte[] tipos, BigInteger[] grandes, String[] erros) {
+            this.inicios = inicios;
+            this.valores = valores;
+            this.tipos = tipos;
+            this.grandes = grandes;
+            this.erros = erros;
+        }
+
+        public int programas() {
+            return inicios.length - 1;
+        }
+
+        /** Total de resultados, de todos os programas. */
+        public int tamanho() {
+            return valores.length;
+        }
+
+        /** Número que não cabe em long do resultado i (de tipo GRANDE). */
+        public BigInteger grande(int i) {
+            return grandes[(int) valores[i]];
+        }
+
+        /** O resultado i como o Parser o imprimiria: Long, BigInteger ou null. */
+        public Number numero(int i) {
+            switch (tipos[i]) {
+                case VALOR:
+                    return Long.valueOf(valores[i]);
+                case GRANDE:
+                    return grande(i);
+                default:
+                    return null;
+            }
+        }
+
+        /** Mensagem do primeiro erro do programa p, ou null se ele foi avaliado sem erro. */
+        public String erro(int p) {
+            return erros != null ? erros[p] : null;
+        }
+    }
+
+    /**
+     * Avalia os programas texto[inicios[p], inicios[p + 1]), para p de 0 a
+     * inicios.length - 2 (o último valor é o fim do último programa).
+     */
+    public Resultados avaliar(CharSequence texto, int[] inicios) {
+        if (inicios.length == 0) {
+            throw new IllegalArgumentException("inicios precisa ter ao menos o fim do texto");
+        }
+        int programas = inicios.length - 1;
+        coletor.iniciar(programas);
+        String[] erros = null;
+        for (int p = 0; p < programas; p++) {
+            coletor.programa(p);
+            leitor.reiniciar(texto, inicios[p], inicios[p + 1]);
+            scanner.reiniciar(leitor, capacidadeMaximaBuffer);
+            diagnosticos.limpar();
+            String erro = null;
+            try {
+                avaliador.avaliar(scanner);
+            } catch (Exception e) {
+                erro = e.getMessage() != null ? e.getMessage() : e.toString();
+            }
+            if (diagnosticos.tamanho() > 0) {
+                erro = diagnosticos.mensagem(0);
+            }
+            if (erro != null) {
+                if (erros == null) {
+                    erros = new String[programas];
+                }
+                erros[p] = erro;
+            }
+        }
+        return coletor.resultados(erros);
+    }
+
+    /** Como {@link #avaliar(CharSequence, int[])}, direto sobre um char[] (sem cópia). */
+    public Resultados avaliar(char[] texto, int[] inicios) {
+        return avaliar(CharBuffer.wrap(texto), inicios);
+    }
+
+    /** Junta os resultados de todos os programas em arrays que só crescem. */
+    private static final class Coletor implements Programa.SaidaLong {
+        private int[] inicios = new int[0];
+        private long[] valores = new long[256];
+        private byte[] tipos = new byte[256];
+        private final List<BigInteger> grandes = new ArrayList<BigInteger>();
+        private int tamanho;
+
+        void iniciar(int programas) {
+            inicios = new int[programas + 1];
+            grandes.clear();
+            tamanho = 0;
+        }
+
+        void programa(int p) {
+            inicios[p] = tamanho;
+        }
+
+        @Override
+        public void aceitarLong(long valor) {
+            adicionar(VALOR, valor);
+        }
+
+        @Override
+        public void accept(Number n) {
+            if (n == null) {
+                adicionar(NULO, 0);
+            } else if (n instanceof BigInteger) {
+                grandes.add((BigInteger) n);
+                adicionar(GRANDE, grandes.size() - 1);
+            } else {
+                adicionar(VALOR, n.longValue());
+            }
+        }
+
+        private void adicionar(byte tipo, long valor) {
+            if (tamanho == valores.length) {
+                valores = Arrays.copyOf(valores, tamanho * 2);
+                tipos = Arrays.copyOf(tipos, tamanho * 2);
+            }
+            valores[tamanho] = valor;
+            tipos[tamanho++] = tipo;
+        }
+
+        Resultados resultados(String[] erros) {
+            inicios[inicios.length - 1] = tamanho;
+            return new Resultados(inicios, Arrays.copyOf(valores, tamanho), Arrays.copyOf(tipos, tamanho),
+                grandes.toArray(new BigInteger[0]), erros);
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            if (args.length != 1) {
+                System.out.println("uso: java AvaliadorLote arquivo");
+                return;
+            }
+            String texto = new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.ISO_8859_1);
+            List<Integer> linhas = new ArrayList<Integer>();
+            linhas.add(0);
+            for (int i = texto.indexOf('\n'); i >= 0; i = texto.indexOf('\n', i + 1)) {
+                linhas.add(i + 1);
+            }
+            if (linhas.get(linhas.size() - 1) != texto.length()) {
+                linhas.add(texto.length());
+            }
+            int[] inicios = new int[linhas.size()];
+            for (int i = 0; i < inicios.length; i++) {
+                inicios[i] = linhas.get(i);
+            }
+            long inicio = System.nanoTime();
+            Resultados r = new AvaliadorLote().avaliar(texto, inicios);
+            long nanos = System.nanoTime() - inicio;
+            StringBuilder linha = new StringBuilder();
+            for (int p = 0; p < r.programas(); p++) {
+                linha.setLength(0);
+                linha.append(p + 1).append(':');
+                for (int i = r.inicios[p]; i < r.inicios[p + 1]; i++) {
+                    linha.append(' ').append(r.numero(i));
+                }
+                if (r.erro(p) != null) {
+                    linha.append("  # ").append(r.erro(p));
+                }
+                System.out.println(linha);
+            }
+            System.out.printf("# %d programas, %d resultados, %d ms%n", r.programas(), r.tamanho(), nanos / 1000000);
+        }
+        catch(Exception e) { System.out.println(e.getMessage());}
+    }
+}
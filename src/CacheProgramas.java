@@ -0,0 +1,170 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Cache em disco de programas compilados (ver {@link Programa}).
+ *
+ * A chave é o SHA-256 do script; a entrada guarda a versão da gramática (hash
+ * das classes geradas do Scanner e do Parser), de modo que regerar qualquer
+ * uma delas invalida o cache. Num acerto o programa é lido de um único
+ * mapeamento e executado direto, sem Scanner nem Parser. Numa falta o script é
+ * executado pelo parser, que ao mesmo tempo emite o programa; ele só é gravado
+ * se a execução chegar ao fim sem erro (nem erro de sintaxe recuperado, cuja
+ * mensagem se perderia nas execuções seguintes).
+ *
+ * Com uma TabelaCompartilhada, a execução numa falta vai pelo
+ * AvaliadorIterativo, em que cada comando é atômico (o parser faria o get e o
+ * put de cada atribuição em passos separados), e o programa é compilado à
+ * parte, numa tabela isolada: um script que depende de variáveis de outros
+ * arquivos falha nessa compilação e simplesmente não é gravado.
+ *
+ * Com otimizar, o programa passa pelo Otimizador antes de ser gravado, então
+ * os acertos já executam a versão otimizada; esses programas ficam em
+ * arquivos à parte (.otm.prg) dos não otimizados.
+ *
+ * Formato (big-endian): int MAGICO, long VERSAO e o programa (Programa.gravar).
+ */
+public class CacheProgramas {
+
+    static final int MAGICO = 0x50524732;  // "PRG2"
+
+    /** Versão da gramática e das ações em uso. */
+    static final long VERSAO = CacheTokens.versao(Scanner.class)
+        ^ 31 * CacheTokens.versao(Parser.class)
+        ^ 961 * CacheTokens.versao(classeAcoes())
+        ^ 29791 * CacheTokens.versao(Programa.class)
+        ^ 923521 * CacheTokens.versao(Otimizador.class);
+
+    private final Path diretorio;
+    private final boolean otimizar;
+
+    public CacheProgramas(Path diretorio) throws IOException {
+        this(diretorio, false);
+    }
+
+    public CacheProgramas(Path diretorio, boolean otimizar) throws IOException {
+        this.diretorio = Files.createDirectories(diretorio);
+        this.otimizar = otimizar;
+    }
+
+    /**
+     * Executa o script, pelo programa em cache se houver, ou pelo parser
+     * (gravando o programa para a próxima vez).
+     */
+    public void executar(Path script, Map<String, Number> simbolos, Consumer<Number> saida) throws Exception {
+        executar(script, simbolos, saida, null);
+    }
+
+    /**
+     * Como {@link #executar(Path, Map, Consumer)}, mas com os erros da análise
+     * indo para diagnosticos. Um script com erros não é gravado, já que o
+     * programa em cache não guarda as posições deles.
+     */
+    public void executar(Path script, Map<String, Number> simbolos, Consumer<Number> saida,
+                         Diagnosticos diagnosticos) throws Exception {
+        // os mesmos bytes dão a chave e são compilados (ver CacheTokens.abrir)
+        byte[] conteudo = Files.readAllBytes(script);
+        Path entrada = diretorio.resolve(CacheTokens.resumo(conteudo) + (otimizar ? ".otm.prg" : ".prg"));
+        Programa p = null;
+        if (Files.exists(entrada)) {
+            try {
+                p = ler(entrada);
+            } catch (IOException | RuntimeException e) {
+                // arquivo corrompido ou de outra versão: recompila
+            }
+        }
+        if (p != null) {
+            p.executar(simbolos, saida);
+        } else if (simbolos instanceof TabelaCompartilhada) {
+            long antes = diagnosticos != null ? diagnosticos.total() : 0;
+            AvaliadorIterativo avaliador = new AvaliadorIterativo(simbolos, saida);
+            avaliador.diagnosticar(diagnosticos);
+            Scanner scanner = new Scanner(new InputStreamReader(new ByteArrayInputStream(conteudo), StandardCharsets.ISO_8859_1));
+            scanner.diagnosticos = diagnosticos;
+            avaliador.avaliar(scanner);
+            if (avaliador.errosSintaticos() == 0 && (diagnosticos == null || diagnosticos.total() == antes)) {
+                Parser parser;
+                try {
+                    parser = compilar(conteudo, new HashMap<String, Number>(), v -> { }, new Diagnosticos(1));
+                } catch (Exception e) {
+                    return;
+                }
+                Programa compilado = parser.programa.construir();
+                salvar(otimizar ? Otimizador.otimizar(compilado) : compilado, entrada);
+            }
+        } else {
+            long antes = diagnosticos != null ? diagnosticos.total() : 0;
+            Parser parser = compilar(conteudo, simbolos, saida, diagnosticos);
+            if (parser.errosSintaticos == 0 && (diagnosticos == null || diagnosticos.total() == antes)) {
+                Programa compilado = parser.programa.construir();
+                salvar(otimizar ? Otimizador.otimizar(compilado) : compilado, entrada);
+            }
+        }
+    }
+
+    /** Executa o script pelo parser, que fica com o programa equivalente em parser.programa. */
+    static Parser compilar(byte[] script, Map<String, Number> simbolos, Consumer<Number> saida,
+                           Diagnosticos diagnosticos) throws Exception {
+        Programa.Construtor programa = new Programa.Construtor();
+        try (Reader leitor = new InputStreamReader(new ByteArrayInputStream(script), StandardCharsets.ISO_8859_1)) {
+            Scanner scanner = new Scanner(leitor);
+            scanner.diagnosticos = diagnosticos;
+            java.util.function.IntConsumer aviso = scanner.caractereIlegal;
+            scanner.caractereIlegal = c -> {
+                programa.emitir(Programa.ILEGAL, c);
+                aviso.accept(c);
+            };
+            Parser parser = new Parser(scanner);
+            parser.simbolos = simbolos;
+            parser.saida = saida;
+            parser.programa = programa;
+            parser.diagnosticos = diagnosticos;
+            parser.parse();
+            return parser;
+        }
+    }
+
+    static Programa ler(Path entrada) throws IOException {
+        MappedByteBuffer b;
+        try (FileChannel c = FileChannel.open(entrada, StandardOpenOption.READ)) {
+            b = c.map(FileChannel.MapMode.READ_ONLY, 0, c.size());
+        }
+        if (b.getInt() != MAGICO || b.getLong() != VERSAO) {
+            throw new IOException("programa de outra versão: " + entrada);
+        }
+        Programa p = Programa.ler(b);
+        if (p == null) {
+            throw new IOException("programa inconsistente: " + entrada);
+        }
+        return p;
+    }
+
+    /** Escreve num temporário e renomeia, como no CacheTokens. */
+    static void salvar(Programa p, Path destino) {
+        try {
+            Path tmp = Files.createTempFile(destino.getParent(), "prg", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGICO);
+                out.writeLong(VERSAO);
+                p.gravar(out);
+            }
+            Files.move(tmp, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // sem cache desta vez; o resultado já foi produzido
+        }
+    }
+
+    private static Class<?> classeAcoes() {
+        try {
+            return Class.forName("Parser$CUP$Parser$actions");
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import java_cup.runtime.Symbol;
+
+/**
+ * Cache em disco da lista de tokens de um arquivo.
+ *
+ * A chave é o SHA-256 do conteúdo do arquivo; num acerto o arquivo de cache é
+ * mapeado em memória e os tokens são reproduzidos direto dele, sem passar pelo
+ * Scanner. Numa falta o arquivo é analisado normalmente (por um Scanner do
+ * PoolAnalisadores) e os tokens são gravados à medida que o parser os
+ * consome; o cache só é escrito se a análise chegar ao EOF. O arquivo é lido
+ * uma vez só, e os mesmos bytes são resumidos e analisados: uma edição no meio
+ * do caminho não grava tokens sob a chave de outro conteúdo.
+ *
+ * Formato (big-endian):
+ *   int   MAGICO
+ *   long  versão do scanner (hash de Scanner.class, gerada a partir do scanner.flex)
+ *   int   número de identificadores, e para cada um: int tamanho + bytes ISO-8859-1
+ *   int   número de tokens, e para cada um: byte tipo, int linha, int coluna e
+ *         - para NUMERO, long valor;
+ *         - para ID, int índice do identificador;
+ *         - para caracteres ilegais, int caractere;
+ *         - para números além de 64 bits (tipo GRANDE), int índice do texto
+ *           do número na mesma tabela dos identificadores.
+ *
+ * Um cache gravado por outra versão do scanner, ou truncado ou inconsistente
+ * (conferido inteiro antes de reproduzir), é tratado como falta e sobrescrito.
+ */
+public class CacheTokens {
+
+    static final int MAGICO = 0x544F4B32;  // "TOK2"
+
+    /** Tipo usado no arquivo para um caractere ilegal (não é um token do parser). */
+    static final byte ILEGAL = -1;
+
+    /** Tipo usado no arquivo para um NUMERO que não cabe em long. */
+    static final byte GRANDE = -2;
+
+    /** Versão do scanner em uso; muda sempre que o scanner.flex é regerado. */
+    static final long VERSAO = versao(Scanner.class);
+
+    /** Fonte de tokens devolvida por {@link #abrir}; fechar libera o arquivo analisado. */
+    public interface Fonte extends java_cup.runtime.Scanner, Closeable {
+        /** Manda os caracteres ilegais para d em vez do console (null desfaz). */
+        void diagnosticar(Diagnosticos d);
+    }
+
+    private final Path diretorio;
+
+    public CacheTokens(Path diretorio) throws IOException {
+        this.diretorio = Files.createDirectories(diretorio);
+    }
+
+    /** Como {@link #abrir(Path, PoolAnalisadores)}, com o pool da thread atual. */
+    public Fonte abrir(Path arquivo) throws IOException {
+        return abrir(arquivo, PoolAnalisadores.local());
+    }
+
+    /**
+     * Fonte de tokens para arquivo: o cache mapeado, se houver um válido, ou um
+     * Scanner de pool gravando os tokens para a próxima vez (devolvido ao pool
+     * quando a fonte é fechada).
+     */
+    public Fonte abrir(Path arquivo, PoolAnalisadores pool) throws IOException {
+        byte[] conteudo = Files.readAllBytes(arquivo);
+        Path entrada = diretorio.resolve(resumo(conteudo) + ".tok");
+        if (Files.exists(entrada)) {
+            try {
+                return ler(entrada);
+            } catch (IOException | RuntimeException e) {
+                // arquivo corrompido, truncado ou de outra versão: refaz
+            }
+        }
+        Reader leitor = new InputStreamReader(new ByteArrayInputStream(conteudo), StandardCharsets.ISO_8859_1);
+        return new Gravador(pool, pool.obter(leitor), entrada);
+    }
+
+    /** Mapeia um arquivo de cache; falha se não for da versão atual. */
+    static Reprodutor ler(Path entrada) throws IOException {
+        MappedByteBuffer b;
+        try (FileChannel c = FileChannel.open(entrada, StandardOpenOption.READ)) {
+            b = c.map(FileChannel.MapMode.READ_ONLY, 0, c.size());
+        }
+        if (b.getInt() != MAGICO || b.getLong() != VERSAO) {
+            throw new IOException("cache de outra versão: " + entrada);
+        }
+        int nIds = b.getInt();
+        if (nIds < 0 || nIds > b.remaining() / 4) {
+            throw new IOException("cache inconsistente: " + entrada);
+        }
+        String[] ids = new String[nIds];
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < ids.length; i++) {
+            int n = b.getInt();
+            if (n < 0 || n > b.remaining()) {
+                throw new IOException("cache inconsistente: " + entrada);
+            }
+            if (n > bytes.length) {
+                bytes = new byte[Math.max(n, bytes.length * 2)];
+            }
+            b.get(bytes, 0, n);
+            ids[i] = new String(bytes, 0, n, StandardCharsets.ISO_8859_1);
+        }
+        int tokens = b.getInt();
+        if (!valido(b.duplicate(), tokens, ids.length)) {
+            throw new IOException("cache inconsistente: " + entrada);
+        }
+        return new Reprodutor(b, ids, tokens);
+    }
+
+    /**
+     * Se a seção de tokens em b tem exatamente tokens entradas bem formadas,
+     * com tipos conhecidos e índices dentro da tabela de ids, e nada depois.
+     * Assim um cache truncado vira falta, em vez de falhar no meio da análise.
+     */
+    static boolean valido(ByteBuffer b, int tokens, int ids) {
+        if (tokens < 0) {
+            return false;
+        }
+        for (int i = 0; i < tokens; i++) {
+            if (b.remaining() < 9) {
+                return false;
+            }
+            byte tipo = b.get();
+            b.position(b.position() + 8);
+            switch (tipo) {
+                case Tokens.NUMERO:
+                    if (b.remaining() < 8) {
+                        return false;
+                    }
+                    b.position(b.position() + 8);
+                    break;
+                case GRANDE:
+                case Tokens.ID:
+                    if (b.remaining() < 4) {
+                        return false;
+                    }
+                    int indice = b.getInt();
+                    if (indice < 0 || indice >= ids) {
+                        return false;
+                    }
+                    break;
+                case ILEGAL:
+                    if (b.remaining() < 4) {
+                        return false;
+                    }
+                    b.getInt();
+                    break;
+                default:
+                    if (tipo < 0 || tipo >= TEXTOS.length || (tipo != Tokens.EOF && TEXTOS[tipo] == null)) {
+                        return false;
+                    }
+            }
+        }
+        return !b.hasRemaining();
+    }
+
+    /** Reproduz os tokens de um cache mapeado, na ordem original. */
+    static final class Reprodutor implements Fonte {
+        private final ByteBuffer b;
+        private final String[] ids;
+        private int restantes;
+        private Diagnosticos diagnosticos;
+
+        Reprodutor(ByteBuffer b, String[] ids, int tokens) {
+            this.b = b;
+            this.ids = ids;
+            this.restantes = tokens;
+        }
+
+        @Override
+        public Symbol next_token() {
+            while (restantes > 0) {
+                restantes--;
+                byte tipo = b.get();
+                int left = b.getInt();
+                int right = b.getInt();
+                switch (tipo) {
+                    case ILEGAL:
+                        if (diagnosticos != null) {
+                            diagnosticos.registrar(Diagnosticos.LEXICO, left, right, b.getInt());
+                        } else {
+                            System.out.println("Caracter ilegal: " + (char) b.getInt());
+                        }
+                        continue;
+                    case Tokens.NUMERO:
+                        return new Symbol(tipo, left, right, Long.valueOf(b.getLong()));
+                    case GRANDE:
+                        return new Symbol(Tokens.NUMERO, left, right, new BigInteger(ids[b.getInt()]));
+                    case Tokens.ID:
+                        return new Symbol(tipo, left, right, ids[b.getInt()]);
+                    case Tokens.EOF:
+                        return new Symbol(tipo, left, right, "Fim do arquivo");
+                    default:
+                        return new Symbol(tipo, left, right, TEXTOS[tipo]);
+                }
+            }
+            return new Symbol(Tokens.EOF, "Fim do arquivo");
+        }
+
+        @Override
+        public void diagnosticar(Diagnosticos d) {
+            diagnosticos = d;
+        }
+
+        @Override
+        public void close() {
+            // o mapeamento é liberado pelo GC
+        }
+    }
+
+    /** Lexema dos tokens de texto fixo, indexado pelo tipo. */
+    static final String[] TEXTOS = new String[Tokens.terminalNames.length];
+    static {
+        TEXTOS[Tokens.SEMI] = ";";
+        TEXTOS[Tokens.ATRIB] = "=";
+        TEXTOS[Tokens.MENOS] = "-";
+        TEXTOS[Tokens.MAIS] = "+";
+        TEXTOS[Tokens.VEZES] = "*";
+        TEXTOS[Tokens.LPAREN] = "(";
+        TEXTOS[Tokens.RPAREN] = ")";
+    }
+
+    /** Repassa os tokens do Scanner ao parser e grava o cache quando chega ao EOF. */
+    static final class Gravador implements Fonte {
+        private final PoolAnalisadores pool;
+        private final PoolAnalisadores.Analisador analisador;
+        private final Scanner scanner;
+        private final boolean lexemas;
+        private final java.util.function.IntConsumer aviso;
+        private final Path destino;
+        private final Map<String, Integer> indices = new HashMap<String, Integer>();
+        private final ByteArrayOutputStream idsBytes = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream tokensBytes = new ByteArrayOutputStream();
+        private final DataOutputStream ids = new DataOutputStream(idsBytes);
+        private final DataOutputStream tokens = new DataOutputStream(tokensBytes);
+        private int total;
+
+        Gravador(PoolAnalisadores pool, PoolAnalisadores.Analisador analisador, Path destino) {
+            this.pool = pool;
+            this.analisador = analisador;
+            this.scanner = analisador.scanner;
+            this.destino = destino;
+            lexemas = scanner.usandoLexemas();
+            scanner.usarLexemas(true);     // indice consulta o Lexema antes do próximo token; o Parser copia os que guarda
+            aviso = scanner.caractereIlegal;
+            scanner.caractereIlegal = c -> {
+                gravar(ILEGAL, scanner.linha(), scanner.coluna(), true, c);
+                aviso.accept(c);
+            };
+        }
+
+        @Override
+        public Symbol next_token() throws IOException {
+            Symbol s = scanner.next_token();
+            switch (s.sym) {
+                case Tokens.NUMERO:
+                    if (s.value instanceof BigInteger) {
+                        gravar(GRANDE, s.left, s.right, true, indice(s.value.toString()));
+                    } else {
+                        gravar(s.sym, s.left, s.right, ((Number) s.value).longValue());
+                    }
+                    break;
+                case Tokens.ID:
+                    gravar(s.sym, s.left, s.right, true, indice((CharSequence) s.value));
+                    break;
+                default:
+                    gravar(s.sym, s.left, s.right, false, 0);
+            }
+            if (s.sym == Tokens.EOF) {
+                salvar();
+            }
+            return s;
+        }
+
+        @Override
+        public void diagnosticar(Diagnosticos d) {
+            scanner.diagnosticos = d;
+        }
+
+        /** Desfaz os ajustes no scanner e o devolve ao pool. */
+        @Override
+        public void close() {
+            scanner.caractereIlegal = aviso;
+            scanner.usarLexemas(lexemas);
+            pool.devolver(analisador);
+        }
+
+        private int indice(CharSequence id) {
+            Integer i = indices.get(id);
+            if (i == null) {
+                String s = id.toString();
+                i = indices.size();
+                indices.put(s, i);
+                byte[] b = s.getBytes(StandardCharsets.ISO_8859_1);
+                try {
+                    ids.writeInt(b.length);
+                    ids.write(b);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return i;
+        }
+
+        private void gravar(int tipo, int left, int right, long valor) {
+            try {
+                tokens.writeByte(tipo);
+                tokens.writeInt(left);
+                tokens.writeInt(right);
+                tokens.writeLong(valor);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            total++;
+        }
+
+        private void gravar(int tipo, int left, int right, boolean comValor, int valor) {
+            try {
+                tokens.writeByte(tipo);
+                tokens.writeInt(left);
+                tokens.writeInt(right);
+                if (comValor) {
+                    tokens.writeInt(valor);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            total++;
+        }
+
+        /** Escreve num temporário e renomeia, para que leitores nunca vejam um cache pela metade. */
+        private void salvar() {
+            try {
+                Path tmp = Files.createTempFile(destino.getParent(), "tok", ".tmp");
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                    out.writeInt(MAGICO);
+                    out.writeLong(VERSAO);
+                    out.writeInt(indices.size());
+                    idsBytes.writeTo(out);
+                    out.writeInt(total);
+                    tokensBytes.writeTo(out);
+                }
+                Files.move(tmp, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // sem cache desta vez; a análise em si não é afetada
+            }
+        }
+    }
+
+    /** SHA-256 (em hexadecimal) de um conteúdo. */
+    static String resumo(byte[] conteudo) {
+        return hex(sha256().digest(conteudo));
+    }
+
+    /** Hash de 64 bits dos bytes de uma classe gerada, usado como versão da gramática. */
+    static long versao(Class<?> classe) {
+        try (InputStream in = classe.getResourceAsStream("/" + classe.getName().replace('.', '/') + ".class")) {
+            byte[] h = sha256().digest(in.readAllBytes());
+            return ByteBuffer.wrap(Arrays.copyOf(h, 8)).getLong();
+        } catch (IOException | NullPointerException e) {
+            throw new IllegalStateException("não foi possível ler " + classe.getName() + ".class", e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,87 @@
+import java.io.PrintStream;
+
+/**
+ * Coletor de erros léxicos e sintáticos com capacidade fixa.
+ *
+ * Os campos de cada diagnóstico ficam em arrays alocados na criação, e a
+ * mensagem só é montada quando pedida; registrar não aloca. Passada a
+ * capacidade, os diagnósticos seguintes são apenas contados.
+ *
+ * Posições são linha e coluna (a partir de 1), como o Scanner as põe no
+ * left/right de cada Symbol.
+ */
+public final class Diagnosticos {
+
+    public static final int LEXICO = 0;       // detalhe: o caractere ilegal
+    public static final int SINTATICO = 1;    // detalhe: o tipo do token inesperado (Tokens)
+
+    private final int[] tipos;
+    private final int[] linhas;
+    private final int[] colunas;
+    private final int[] detalhes;
+    private int tamanho;
+    private long total;
+
+    public Diagnosticos(int capacidade) {
+        tipos = new int[capacidade];
+        linhas = new int[capacidade];
+        colunas = new int[capacidade];
+        detalhes = new int[capacidade];
+    }
+
+    void registrar(int tipo, int linha, int coluna, int detalhe) {
+        total++;
+        if (tamanho < tipos.length) {
+            tipos[tamanho] = tipo;
+            linhas[tamanho] = linha;
+            colunas[tamanho] = coluna;
+            detalhes[tamanho] = detalhe;
+            tamanho++;
+        }
+    }
+
+    /** Quantos diagnósticos estão guardados. */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /** Quantos erros houve, incluindo os que não couberam. */
+    public long total() {
+        return total;
+    }
+
+    public int tipo(int i) {
+        return tipos[i];
+    }
+
+    public int linha(int i) {
+        return linhas[i];
+    }
+
+    public int coluna(int i) {
+        return colunas[i];
+    }
+
+    public String mensagem(int i) {
+        String onde = linhas[i] > 0 ? "linha " + linhas[i] + ", coluna " + colunas[i] + ": " : "";
+        if (tipos[i] == LEXICO) {
+            return onde + "caractere ilegal '" + (char) detalhes[i] + "'";
+        }
+        int t = detalhes[i];
+        return onde + "erro de sintaxe em " + (t >= 0 && t < Tokens.terminalNames.length ? Tokens.terminalNames[t] : "?");
+    }
+
+    public void limpar() {
+        tamanho = 0;
+        total = 0;
+    }
+
+    public void imprimir(PrintStream out) {
+        for (int i = 0; i < tamanho; i++) {
+            out.println(mensagem(i));
+        }
+        if (total > tamanho) {
+            out.println("... e mais " + (total - tamanho) + " erro(s)");
+        }
+    }
+}
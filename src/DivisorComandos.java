@@ -0,0 +1,133 @@
+import java.io.IOException;
+
+/**
+ * Divide um fluxo de caracteres em comandos terminados por ';' usando memória
+ * limitada: o comando pendente fica num buffer que começa pequeno, dobra
+ * conforme preciso até maxComando e volta ao tamanho inicial depois de um
+ * comando grande. Uma conexão ociosa (ServidorAvaliacao) custa só o inicial.
+ *
+ * Um comando maior que maxComando, ou que contenha uma sequência de letras,
+ * dígitos e '_' (um ID ou NUMERO) maior que maxToken, é descartado até o
+ * próximo ';' e reportado como erro, sem que o texto excedente seja guardado.
+ * Assim nem o divisor nem o buffer do Scanner crescem com a entrada.
+ */
+final class DivisorComandos {
+
+    /** Quem recebe os comandos completos e os erros, na ordem da entrada. */
+    interface Destino {
+        /** texto[inicio, fim) é um comando completo, incluindo o ';'. Só vale durante a chamada. */
+        void comando(CharSequence texto, int inicio, int fim) throws IOException;
+
+        void erro(String mensagem) throws IOException;
+    }
+
+    /** Capacidade inicial do buffer, e acima de quanto ele é descartado entre comandos. */
+    static final int CAPACIDADE_INICIAL = 256;
+    static final int CAPACIDADE_RETIDA = 16 * 1024;
+
+    private final int maxComando;
+    private final int maxToken;
+    private char[] buffer;
+    private java.nio.CharBuffer texto;
+    private final Destino destino;
+    private int tamanho;
+    private int corrida;              // tamanho da sequência de letras/dígitos atual
+    private boolean pulandoCorrida;   // ainda dentro de um token longo demais
+    private String descarte;          // motivo, se o comando atual está sendo descartado
+
+    DivisorComandos(int maxComando, int maxToken, Destino destino) {
+        if (maxComando < 1 || maxToken < 1) {
+            throw new IllegalArgumentException("limites devem ser positivos");
+        }
+        this.maxComando = maxComando;
+        this.maxToken = maxToken;
+        this.buffer = new char[Math.min(maxComando + 1, CAPACIDADE_INICIAL)];   // + o ';'
+        this.texto = java.nio.CharBuffer.wrap(buffer);
+        this.destino = destino;
+    }
+
+    /** Tamanho atual do buffer (nunca passa de maxComando + 1). */
+    int capacidade() {
+        return buffer.length;
+    }
+
+    void receber(char[] bloco, int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            char c = bloco[i];
+            boolean palavra = c < 128 && (Character.isLetterOrDigit(c) || c == '_');
+            if (pulandoCorrida) {
+                if (palavra) {
+                    continue;
+                }
+                pulandoCorrida = false;
+            }
+            if (c == ';') {
+                if (descarte != null) {
+                    destino.erro(descarte);
+                } else {
+                    if (tamanho == buffer.length) {
+                        crescer();
+                    }
+                    buffer[tamanho++] = c;
+                    destino.comando(texto, 0, tamanho);
+                }
+                reiniciarBuffer();
+                corrida = 0;
+                descarte = null;
+                continue;
+            }
+            if (descarte != null) {
+                continue;
+            }
+            corrida = palavra ? corrida + 1 : 0;
+            if (corrida > maxToken) {
+                descartar("token com mais de " + maxToken + " caracteres");
+                pulandoCorrida = true;
+            } else if (tamanho == maxComando) {
+                descartar("comando com mais de " + maxComando + " caracteres");
+            } else {
+                if (tamanho == buffer.length) {
+                    crescer();
+                }
+                buffer[tamanho++] = c;
+            }
+        }
+    }
+
+    /** Fim da entrada: um resto sem ';' ainda é entregue (e provavelmente dá erro). */
+    void terminar() throws IOException {
+        if (descarte != null) {
+            destino.erro(descarte);
+        } else {
+            for (int i = 0; i < tamanho; i++) {
+                if (!Character.isWhitespace(buffer[i])) {
+                    destino.comando(texto, 0, tamanho);
+                    break;
+                }
+            }
+        }
+        reiniciarBuffer();
+        corrida = 0;
+        pulandoCorrida = false;
+        descarte = null;
+    }
+
+    private void descartar(String motivo) {
+        descarte = motivo;
+        reiniciarBuffer();
+    }
+
+    private void crescer() {
+        buffer = java.util.Arrays.copyOf(buffer, (int) Math.min(maxComando + 1L, 2L * buffer.length));
+        texto = java.nio.CharBuffer.wrap(buffer);
+    }
+
+    /** Esvazia o buffer, devolvendo-o ao tamanho inicial se um comando grande o fez crescer demais. */
+    private void reiniciarBuffer() {
+        tamanho = 0;
+        if (buffer.length > CAPACIDADE_RETIDA) {
+            buffer = new char[CAPACIDADE_INICIAL];
+            texto = java.nio.CharBuffer.wrap(buffer);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import jdk.jfr.*;
+
+/**
+ * Eventos do Java Flight Recorder emitidos pelo scanner, pelo parser, pela
+ * Programa.Maquina e pelos drivers (ProcessadorLote). Ficam no grupo
+ * "JFlex/CUP" do JMC.
+ *
+ * Para manter o custo baixo, os eventos com duração só são gravados acima de
+ * um limite (@Threshold, ajustável no arquivo .jfc da gravação) e nenhum
+ * guarda stack trace. Sem gravação ativa, cada ponto de emissão custa um teste.
+ *
+ * Os pontos de emissão testam {@link #gravando()} antes de tocar numa classe
+ * de evento: carregar a primeira subclasse de Event inicializa toda a
+ * infraestrutura do JFR, o que custava centenas de ms na partida de cada
+ * execução curta, mesmo sem gravação nenhuma.
+ */
+final class EventosJfr {
+
+    private EventosJfr() {
+    }
+
+    /**
+     * Se o JFR já foi iniciado (por -XX:StartFlightRecording, jcmd JFR.start
+     * ou pela API). Enquanto for false nenhum evento poderia ser gravado, e as
+     * classes de evento nem são carregadas.
+     */
+    static boolean gravando() {
+        return FlightRecorder.isInitialized();
+    }
+
+    @Name("jflexcup.Arquivo")
+    @Label("Análise de arquivo")
+    @Category("JFlex/CUP")
+    @Description("Análise léxica, sintática e avaliação de um arquivo inteiro")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class Arquivo extends Event {
+        @Label("Arquivo")
+        String arquivo;
+
+        @Label("Comandos")
+        int comandos;
+
+        @Label("Erro")
+        String erro;
+    }
+
+    @Name("jflexcup.Comando")
+    @Label("Avaliação de comando")
+    @Category("JFlex/CUP")
+    @Description("Um comando, do fim do anterior até seu resultado, no Parser ou na Programa.Maquina (AvaliadorIterativo e programas compilados); ';' vazio não conta")
+    @Threshold("100 us")
+    @StackTrace(false)
+    static final class Comando extends Event {
+        @Label("Número do comando")
+        long numero;
+
+        @Label("Variável escrita")
+        String variavel;
+
+        /** Começa a medir um comando, ou devolve null se o evento não está sendo gravado. */
+        static Comando iniciar(long numero) {
+            Comando c = new Comando();
+            if (!c.isEnabled()) {
+                return null;
+            }
+            c.numero = numero;
+            c.begin();
+            return c;
+        }
+    }
+
+    @Name("jflexcup.CrescimentoBuffer")
+    @Label("Crescimento do buffer do scanner")
+    @Category("JFlex/CUP")
+    @Description("O zzRefill dobrou o zzBuffer porque um token não cabia nele")
+    @StackTrace(false)
+    static final class CrescimentoBuffer extends Event {
+        @Label("Capacidade anterior")
+        int anterior;
+
+        @Label("Capacidade nova")
+        int nova;
+
+        @Label("Tamanho do token")
+        int tamanhoToken;
+    }
+
+    @Name("jflexcup.CaractereIlegal")
+    @Label("Caractere ilegal")
+    @Category("JFlex/CUP")
+    @StackTrace(false)
+    static final class CaractereIlegal extends Event {
+        @Label("Caractere")
+        char caractere;
+
+        @Label("Linha")
+        int linha;
+
+        @Label("Posição")
+        long posicao;
+    }
+}
@@ -0,0 +1,355 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * Gerador de programas sintéticos para a linguagem do parser.cup, para
+ * benchmarks e testes de carga do Scanner e do Parser.
+ *
+ * É um Reader: o texto é gerado comando a comando, à medida que é lido, então
+ * pode ter qualquer tamanho (inclusive sem fim) com memória constante. A
+ * mesma semente e os mesmos {@link Parametros} dão sempre o mesmo texto.
+ *
+ * Os programas são válidos para a gramática e também rodam até o fim: só se
+ * lê variável já definida, atribuição só aparece como comando inteiro (o
+ * resultado de uma atribuição é null) e cada expressão é impressa com os
+ * parênteses que a precedência exige. O gerador calcula o valor de cada
+ * comando; uma atribuição cujo valor passaria de valorMaximo vira só a
+ * expressão, para que as variáveis não cresçam sem limite de um comando para
+ * o outro. A única fonte de erro é a taxa de caracteres ilegais, que o
+ * Scanner pula (com aviso) sem mudar o resultado.
+ *
+ * Uso: java GeradorCarga [--semente N] [--comandos N] [--tamanho N[k|m|g]]
+ *          [--identificadores N] [--profundidade N] [--operadores soma,subtrai,multiplica,nega,parenteses]
+ *          [--atribuicoes F] [--digitos N] [--valor-maximo N] [--espacos F] [--ilegais F] [arquivo]
+ */
+public final class GeradorCarga extends Reader {
+
+    /** Configuração do gerador; os valores iniciais são os padrões. */
+    public static final class Parametros {
+        public long semente = 1;
+        /** Número de comandos, ou -1 para não limitar. */
+        public long comandos = -1;
+        /** Tamanho aproximado em caracteres (o último comando é completado), ou -1 para não limitar. */
+        public long tamanho = -1;
+        /** Quantos nomes de variável diferentes podem aparecer. */
+        public int identificadores = 100;
+        /** Profundidade máxima das expressões (fora os parênteses exigidos pela precedência). */
+        public int profundidade = 4;
+        /** Pesos relativos de cada operação num nó interno; uma folha tem peso pesoFolha. */
+        public int pesoSoma = 4;
+        public int pesoSubtrai = 3;
+        public int pesoMultiplica = 2;
+        public int pesoNega = 1;
+        public int pesoParenteses = 1;
+        public int pesoFolha = 6;
+        /** Fração dos comandos que são atribuições (os demais são só uma expressão). */
+        public double atribuicoes = 0.7;
+        /** Número máximo de dígitos de um literal (acima de 18, alguns serão BigInteger). */
+        public int digitos = 3;
+        /** Maior valor absoluto guardado numa variável. */
+        public long valorMaximo = 1000000000L;
+        /** Probabilidade de haver espaço em branco entre dois tokens. */
+        public double espacos = 0.5;
+        /** Probabilidade de haver um caractere ilegal entre dois tokens. */
+        public double ilegais = 0;
+
+        void validar() {
+            if (identificadores < 1 || profundidade < 0 || digitos < 1 || valorMaximo < 0
+                    || pesoSoma < 0 || pesoSubtrai < 0 || pesoMultiplica < 0 || pesoNega < 0
+                    || pesoParenteses < 0 || pesoFolha < 0
+                    || pesoSoma + pesoSubtrai + pesoMultiplica + pesoNega + pesoParenteses + pesoFolha == 0
+                    || !probabilidade(atribuicoes) || !probabilidade(espacos) || !probabilidade(ilegais)) {
+                throw new IllegalArgumentException("parâmetros de geração inválidos");
+            }
+        }
+
+        private static boolean probabilidade(double p) {
+            return p >= 0 && p <= 1;
+        }
+    }
+
+    // tipos de nó de expressão
+    private static final int FOLHA = 0;
+    private static final int SOMA = 1;
+    private static final int SUBTRAI = 2;
+    private static final int MULTIPLICA = 3;
+    private static final int NEGA = 4;
+    private static final int PARENTESES = 5;
+
+    private static final String ESPACOS = "     \t\n";
+    private static final String ILEGAIS = "#@$!?{}[]&|%^~`\\.:,\"'";
+
+    private final Parametros p;
+    private final SplittableRandom aleatorio;
+    private final int[] pesos;
+    private final int pesoTotal;
+    private final boolean[] definida;
+    private final int[] definidas;
+    private int quantasDefinidas;
+    private final long[] valores;     // valor atual de cada variável definida
+
+    private final StringBuilder comando = new StringBuilder();
+    private int lido;
+    private long gerados;
+    private long caracteres;
+    private boolean fora;    // o valor da expressão em geração saiu de long
+
+    public GeradorCarga(Parametros p) {
+        p.validar();
+        this.p = p;
+        this.aleatorio = new SplittableRandom(p.semente);
+        this.pesos = new int[] {p.pesoFolha, p.pesoSoma, p.pesoSubtrai, p.pesoMultiplica, p.pesoNega, p.pesoParenteses};
+        int total = 0;
+        for (int w : pesos) {
+            total += w;
+        }
+        this.pesoTotal = total;
+        this.definida = new boolean[p.identificadores];
+        this.definidas = new int[p.identificadores];
+        this.valores = new long[p.identificadores];
+    }
+
+    /** Comandos gerados até agora. */
+    public long comandos() {
+        return gerados;
+    }
+
+    @Override
+    public int read(char[] destino, int inicio, int tamanho) {
+        if (tamanho == 0) {
+            return 0;
+        }
+        int n = 0;
+        while (n < tamanho) {
+            if (lido == comando.length()) {
+                if (!gerarComando()) {
+                    break;
+                }
+            }
+            int k = Math.min(tamanho - n, comando.length() - lido);
+            comando.getChars(lido, lido + k, destino, inicio + n);
+            lido += k;
+            n += k;
+        }
+        return n == 0 ? -1 : n;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /** Gera o próximo comando em comando; false se já chegou ao fim. */
+    private boolean gerarComando() {
+        if ((p.comandos >= 0 && gerados >= p.comandos) || (p.tamanho >= 0 && caracteres >= p.tamanho)) {
+            return false;
+        }
+        comando.setLength(0);
+        lido = 0;
+        fora = false;
+        int alvo = -1;
+        if (aleatorio.nextDouble() < p.atribuicoes) {
+            alvo = aleatorio.nextInt(p.identificadores);
+            nome(alvo);
+            separar();
+            comando.append('=');
+            separar();
+        }
+        int inicioExpressao = comando.length();
+        long valor = expressao(0, sortear(0));
+        if (alvo >= 0) {
+            if (fora || Math.abs(valor) > p.valorMaximo || valor == Long.MIN_VALUE) {
+                // guardar faria as variáveis crescerem a cada comando: fica só a expressão
+                comando.delete(0, inicioExpressao);
+            } else {
+                valores[alvo] = valor;
+                if (!definida[alvo]) {
+                    definida[alvo] = true;
+                    definidas[quantasDefinidas++] = alvo;
+                }
+            }
+        }
+        separar();
+        comando.append(";\n");
+        gerados++;
+        caracteres += comando.length();
+        return true;
+    }
+
+    /** Gera uma expressão do tipo dado e devolve seu valor (fora fica true se ele sair de long). */
+    private long expressao(int d, int tipo) {
+        switch (tipo) {
+            case SOMA:
+            case SUBTRAI:
+            case MULTIPLICA: {
+                int tipoEsquerda = sortear(d + 1);
+                long a = operando(d + 1, tipoEsquerda, precedencia(tipoEsquerda) < precedencia(tipo));
+                separar();
+                comando.append(tipo == SOMA ? '+' : tipo == SUBTRAI ? '-' : '*');
+                separar();
+                int tipoDireita = sortear(d + 1);
+                long b = operando(d + 1, tipoDireita, precedencia(tipoDireita) <= precedencia(tipo));
+                try {
+                    return tipo == SOMA ? Math.addExact(a, b)
+                        : tipo == SUBTRAI ? Math.subtractExact(a, b) : Math.multiplyExact(a, b);
+                } catch (ArithmeticException e) {
+                    fora = true;
+                    return 0;
+                }
+            }
+            case NEGA: {
+                comando.append('-');
+                separar();
+                int tipoFilho = sortear(d + 1);
+                // -a*b vale o mesmo que -(a*b); só + e - precisam de parênteses
+                long a = operando(d + 1, tipoFilho, precedencia(tipoFilho) == 1);
+                try {
+                    return Math.negateExact(a);
+                } catch (ArithmeticException e) {
+                    fora = true;
+                    return 0;
+                }
+            }
+            case PARENTESES:
+                return operando(d + 1, sortear(d + 1), true);
+            default:
+                return folha();
+        }
+    }
+
+    private long operando(int d, int tipo, boolean parenteses) {
+        if (!parenteses) {
+            return expressao(d, tipo);
+        }
+        comando.append('(');
+        separar();
+        long v = expressao(d, tipo);
+        separar();
+        comando.append(')');
+        return v;
+    }
+
+    /** Um literal ou uma variável já definida (literal enquanto não houver nenhuma). */
+    private long folha() {
+        if (quantasDefinidas > 0 && aleatorio.nextBoolean()) {
+            int v = definidas[aleatorio.nextInt(quantasDefinidas)];
+            nome(v);
+            return valores[v];
+        }
+        int n = 1 + aleatorio.nextInt(p.digitos);
+        long v = 0;
+        for (int i = 0; i < n; i++) {
+            int digito = i == 0 && n > 1 ? 1 + aleatorio.nextInt(9) : aleatorio.nextInt(10);
+            comando.append((char) ('0' + digito));
+            if (v > (Long.MAX_VALUE - digito) / 10) {
+                fora = true;
+            } else {
+                v = v * 10 + digito;
+            }
+        }
+        return v;
+    }
+
+    private int sortear(int d) {
+        if (d >= p.profundidade) {
+            return FOLHA;
+        }
+        int r = aleatorio.nextInt(pesoTotal);
+        for (int t = 0; t < pesos.length; t++) {
+            if ((r -= pesos[t]) < 0) {
+                return t;
+            }
+        }
+        return FOLHA;
+    }
+
+    private static int precedencia(int tipo) {
+        switch (tipo) {
+            case SOMA:
+            case SUBTRAI:
+                return 1;
+            case MULTIPLICA:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    /** Nome da variável i: uma letra (i % 26) seguida de i / 26 em base 36, se não for 0. */
+    private void nome(int i) {
+        comando.append((char) ('a' + i % 26));
+        if (i >= 26) {
+            comando.append(Integer.toString(i / 26, 36));
+        }
+    }
+
+    /** Número com sufixo opcional k, m ou g (potências de 1024). */
+    static long tamanho(String s) {
+        char u = Character.toLowerCase(s.charAt(s.length() - 1));
+        int deslocamento = u == 'k' ? 10 : u == 'm' ? 20 : u == 'g' ? 30 : 0;
+        return Long.parseLong(deslocamento == 0 ? s : s.substring(0, s.length() - 1)) << deslocamento;
+    }
+
+    public static void main(String[] args) {
+        Parametros p = new Parametros();
+        String arquivo = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--semente") && i + 1 < args.length) {
+                p.semente = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--comandos") && i + 1 < args.length) {
+                p.comandos = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--tamanho") && i + 1 < args.length) {
+                p.tamanho = tamanho(args[++i]);
+            } else if (args[i].equals("--identificadores") && i + 1 < args.length) {
+                p.identificadores = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--profundidade") && i + 1 < args.length) {
+                p.profundidade = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--operadores") && i + 1 < args.length) {
+                String[] w = args[++i].split(",");
+                if (w.length != 5) {
+                    System.err.println("--operadores espera 5 pesos: soma,subtrai,multiplica,nega,parenteses");
+                    return;
+                }
+                p.pesoSoma = Integer.parseInt(w[0]);
+                p.pesoSubtrai = Integer.parseInt(w[1]);
+                p.pesoMultiplica = Integer.parseInt(w[2]);
+                p.pesoNega = Integer.parseInt(w[3]);
+                p.pesoParenteses = Integer.parseInt(w[4]);
+            } else if (args[i].equals("--atribuicoes") && i + 1 < args.length) {
+                p.atribuicoes = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("--digitos") && i + 1 < args.length) {
+                p.digitos = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--valor-maximo") && i + 1 < args.length) {
+                p.valorMaximo = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--espacos") && i + 1 < args.length) {
+                p.espacos = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("--ilegais") && i + 1 < args.length) {
+                p.ilegais = Double.parseDouble(args[++i]);
+            } else {
+                arquivo = args[i];
+            }
+        }
+        if (p.comandos < 0 && p.tamanho < 0 && arquivo != null) {
+            System.err.println("sem --comandos nem --tamanho o gerador não termina; use a saída padrão");
+            return;
+        }
+        try (Reader gerador = new GeradorCarga(p);
+             Writer saida = new BufferedWriter(new OutputStreamWriter(arquivo != null
+                 ? Files.newOutputStream(Paths.get(arquivo)) : System.out, StandardCharsets.ISO_8859_1), 1 << 16)) {
+            gerador.transferTo(saida);
+        }
+        catch(Exception e) { System.err.println(e.getMessage());}
+    }
+
+    /** Entre dois tokens: talvez espaço em branco, talvez um caractere ilegal. */
+    private void separar() {
+        if (p.espacos > 0 && aleatorio.nextDouble() < p.espacos) {
+            comando.append(ESPACOS.charAt(aleatorio.nextInt(ESPACOS.length())));
+        }
+        if (p.ilegais > 0 && aleatorio.nextDouble() < p.ilegais) {
+            comando.append(ILEGAIS.charAt(aleatorio.nextInt(ILEGAIS.length())));
+        }
+    }
+}
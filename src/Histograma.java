@@ -0,0 +1,57 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma concorrente com faixas em potências de 2: a faixa i conta os
+ * valores v com 2^(i-1) <= v < 2^i (a faixa 0 conta os zeros). Cada faixa é
+ * um LongAdder, então threads diferentes quase nunca disputam a mesma célula.
+ */
+public final class Histograma {
+
+    private final LongAdder[] faixas = new LongAdder[64];
+    private final LongAdder soma = new LongAdder();
+    private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+    public Histograma() {
+        for (int i = 0; i < faixas.length; i++) {
+            faixas[i] = new LongAdder();
+        }
+    }
+
+    /** Registra um valor (negativos contam como zero). */
+    public void registrar(long valor) {
+        long v = Math.max(valor, 0);
+        faixas[64 - Long.numberOfLeadingZeros(v)].increment();
+        soma.add(v);
+        maximo.accumulate(v);
+    }
+
+    /** Contagem por faixa, até a última faixa não vazia. */
+    public long[] contagens() {
+        int ultima = 0;
+        long[] c = new long[faixas.length];
+        for (int i = 0; i < c.length; i++) {
+            c[i] = faixas[i].sum();
+            if (c[i] != 0) {
+                ultima = i + 1;
+            }
+        }
+        return java.util.Arrays.copyOf(c, ultima);
+    }
+
+    public long total() {
+        long t = 0;
+        for (LongAdder f : faixas) {
+            t += f.sum();
+        }
+        return t;
+    }
+
+    public long soma() {
+        return soma.sum();
+    }
+
+    public long maximo() {
+        return maximo.get();
+    }
+}
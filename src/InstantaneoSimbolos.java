@@ -0,0 +1,409 @@
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Instantâneo da tabela de símbolos num arquivo, restaurado por mapeamento em
+ * memória em vez de reexecutar os scripts que definiram as variáveis.
+ *
+ * O arquivo tem um dicionário de identificadores (os nomes em ISO-8859-1 e um
+ * índice hash com endereçamento aberto) e um array denso de valores long, um
+ * por variável. Restaurar só mapeia o arquivo: nenhuma variável é lida até ser
+ * usada, então o custo não depende de quantas existem. O mapeamento é só de
+ * leitura (o arquivo pode estar num diretório ou montagem sem escrita):
+ * atribuições a variáveis do instantâneo vão para páginas em memória, de
+ * PAGINA variáveis cada, criadas na primeira escrita; variáveis novas ficam
+ * num Map à parte.
+ *
+ * Formato (big-endian), com n variáveis e capacidade c (potência de 2 >= 2n):
+ *   int  MAGICO, n, c, tamanho dos nomes, tamanho dos números grandes
+ *   long valores[n]      o valor; para tipo GRANDE, a posição do número grande
+ *   byte tipos[n]        LONGO, GRANDE ou INDEFINIDA
+ *   int  inicioNomes[n+1] (alinhado a 4) e int indice[c] (variável + 1; 0 é vazio)
+ *   os nomes e, para cada número grande, int tamanho + bytes (BigInteger.toByteArray)
+ *
+ * O arquivo inteiro precisa caber num único mapeamento (2 GB).
+ */
+public final class InstantaneoSimbolos {
+
+    static final int MAGICO = 0x53494D31;  // "SIM1"
+
+    static final byte LONGO = 0;
+    static final byte GRANDE = 1;
+    static final byte INDEFINIDA = 2;
+    static final byte SOBREPOSTA = 3;      // só em memória: o valor está no Map de variáveis novas
+    static final byte ORIGINAL = -1;       // só em memória: vale o que está no arquivo
+
+    /** Variáveis por página de escritas da TabelaMapeada. */
+    static final int PAGINA = 1024;
+
+    private static final int CABECALHO = 5 * 4;
+
+    private InstantaneoSimbolos() {
+    }
+
+    /** Grava as variáveis definidas de simbolos em destino (num temporário, depois renomeado). */
+    public static void gravar(Map<String, ? extends Number> simbolos, Path destino) throws IOException {
+        int n = 0;
+        long tamanhoNomes = 0;
+        long tamanhoGrandes = 0;
+        List<byte[]> nomes = new ArrayList<byte[]>(simbolos.size());
+        List<Number> valores = new ArrayList<Number>(simbolos.size());
+        for (Map.Entry<String, ? extends Number> e : simbolos.entrySet()) {
+            Number v = e.getValue();
+            if (v == null) {
+                continue;
+            }
+            String nome = e.getKey();
+            byte[] b = nome.getBytes(StandardCharsets.ISO_8859_1);
+            if (!new String(b, StandardCharsets.ISO_8859_1).equals(nome)) {
+                throw new IllegalArgumentException("nome fora de ISO-8859-1: " + nome);
+            }
+            if (grande(v)) {
+                tamanhoGrandes += 4 + ((BigInteger) v).toByteArray().length;
+            }
+            nomes.add(b);
+            valores.add(v);
+            tamanhoNomes += b.length;
+            n++;
+        }
+        int c = capacidade(n);
+        Layout l = new Layout(n, c, tamanhoNomes);
+        long tamanho = l.fim + tamanhoGrandes;
+        if (tamanho > Integer.MAX_VALUE) {
+            throw new IOException("instantâneo grande demais para um mapeamento: " + tamanho + " bytes");
+        }
+        Path tmp = Files.createTempFile(destino.toAbsolutePath().getParent(), "sim", ".tmp");
+        try (FileChannel canal = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer b = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanho);
+            b.putInt(0, MAGICO);
+            b.putInt(4, n);
+            b.putInt(8, c);
+            b.putInt(12, (int) tamanhoNomes);
+            b.putInt(16, (int) tamanhoGrandes);
+            int nome = 0;
+            int grande = 0;
+            for (int i = 0; i < n; i++) {
+                Number v = valores.get(i);
+                if (grande(v)) {
+                    byte[] bytes = ((BigInteger) v).toByteArray();
+                    b.putLong(l.valores + 8 * i, grande);
+                    b.put(l.tipos + i, GRANDE);
+                    b.putInt(l.grandes + grande, bytes.length);
+                    b.put(l.grandes + grande + 4, bytes);
+                    grande += 4 + bytes.length;
+                } else {
+                    b.putLong(l.valores + 8 * i, v.longValue());
+                    b.put(l.tipos + i, LONGO);
+                }
+                byte[] bytes = nomes.get(i);
+                b.putInt(l.inicioNomes + 4 * i, nome);
+                b.put(l.nomes + nome, bytes);
+                nome += bytes.length;
+                int s = posicao(hash(bytes), c);
+                while (b.getInt(l.indice + 4 * s) != 0) {
+                    s = (s + 1) & (c - 1);
+                }
+                b.putInt(l.indice + 4 * s, i + 1);
+            }
+            b.putInt(l.inicioNomes + 4 * n, nome);
+            b.force();
+        }
+        Files.move(tmp, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Mapeia um instantâneo como tabela de símbolos; variáveis novas vão para um HashMap. */
+    public static Map<String, Number> restaurar(Path arquivo) throws IOException {
+        return restaurar(arquivo, new HashMap<String, Number>());
+    }
+
+    /** Mapeia um instantâneo como tabela de símbolos; variáveis novas vão para novas. */
+    public static Map<String, Number> restaurar(Path arquivo, Map<String, Number> novas) throws IOException {
+        MappedByteBuffer b;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            b = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+        if (b.capacity() < CABECALHO || b.getInt(0) != MAGICO) {
+            throw new IOException("não é um instantâneo de símbolos: " + arquivo);
+        }
+        if (!consistente(b)) {
+            throw new IOException("instantâneo inconsistente: " + arquivo);
+        }
+        return new TabelaMapeada(b, novas);
+    }
+
+    /**
+     * Se o cabeçalho descreve um arquivo do tamanho de b: c potência de 2 com
+     * 2n <= c (como gravar escolhe, o que deixa posições vazias no índice) e
+     * as seções, na ordem do formato, terminando exatamente no fim. Só o
+     * cabeçalho é lido; as entradas continuam sendo lidas só quando usadas.
+     */
+    static boolean consistente(ByteBuffer b) {
+        int n = b.getInt(4);
+        int c = b.getInt(8);
+        int tamanhoNomes = b.getInt(12);
+        int tamanhoGrandes = b.getInt(16);
+        if (n < 0 || c < 2 || (c & (c - 1)) != 0 || 2L * n > c || tamanhoNomes < 0 || tamanhoGrandes < 0) {
+            return false;
+        }
+        return new Layout(n, c, tamanhoNomes).fim + tamanhoGrandes == b.capacity();
+    }
+
+    /** Posições das seções no arquivo; só valem se fim couber em int. */
+    static final class Layout {
+        final int valores;
+        final int tipos;
+        final int inicioNomes;
+        final int indice;
+        final int nomes;
+        final int grandes;
+        final long fim;     // início dos números grandes, calculado sem estouro
+
+        Layout(int n, int c, long tamanhoNomes) {
+            long tipos = 24 + 8L * n;     // o cabeçalho, alinhado a 8, e os valores
+            long inicioNomes = (tipos + n + 3) & ~3L;
+            long indice = inicioNomes + 4L * (n + 1);
+            long nomes = indice + 4L * c;
+            this.fim = nomes + tamanhoNomes;
+            this.valores = 24;
+            this.tipos = (int) tipos;
+            this.inicioNomes = (int) inicioNomes;
+            this.indice = (int) indice;
+            this.nomes = (int) nomes;
+            this.grandes = (int) fim;
+        }
+    }
+
+    /**
+     * Tabela de símbolos sobre um instantâneo mapeado. O mapeamento nunca é
+     * escrito: o tipo e o valor atribuídos a uma variável do instantâneo ficam
+     * na página dela em tipos e valores (ORIGINAL no tipo é o do arquivo).
+     * Como o HashMap, não é thread-safe.
+     */
+    static final class TabelaMapeada extends AbstractMap<String, Number> {
+        private final MappedByteBuffer b;
+        private final Map<String, Number> novas;
+        private final int n;
+        private final int c;
+        private final Layout l;
+        private final byte[][] tipos;
+        private final long[][] valores;
+
+        TabelaMapeada(MappedByteBuffer b, Map<String, Number> novas) {
+            this.b = b;
+            this.novas = novas;
+            this.n = b.getInt(4);
+            this.c = b.getInt(8);
+            this.l = new Layout(n, c, b.getInt(12));
+            this.tipos = new byte[(n + PAGINA - 1) / PAGINA][];
+            this.valores = new long[tipos.length][];
+        }
+
+        private byte tipo(int i) {
+            byte[] p = tipos[i / PAGINA];
+            byte t = p != null ? p[i % PAGINA] : ORIGINAL;
+            return t != ORIGINAL ? t : b.get(l.tipos + i);
+        }
+
+        /** O long guardado para i: o valor, ou a posição do número grande. */
+        private long longo(int i) {
+            byte[] p = tipos[i / PAGINA];
+            return p != null && p[i % PAGINA] != ORIGINAL ? valores[i / PAGINA][i % PAGINA] : b.getLong(l.valores + 8 * i);
+        }
+
+        private void escrever(int i, byte tipo, long valor) {
+            byte[] p = tipos[i / PAGINA];
+            if (p == null) {
+                p = tipos[i / PAGINA] = new byte[PAGINA];
+                Arrays.fill(p, ORIGINAL);
+                valores[i / PAGINA] = new long[PAGINA];
+            }
+            p[i % PAGINA] = tipo;
+            valores[i / PAGINA][i % PAGINA] = valor;
+        }
+
+        /**
+         * Índice da variável no instantâneo, ou -1. Não aloca. Passa no máximo
+         * uma vez por cada posição e ignora entradas fora de [0, n), então um
+         * índice corrompido não prende a busca nem a leva para fora das seções.
+         */
+        int procurar(Object chave) {
+            if (!(chave instanceof String)) {
+                return -1;
+            }
+            String nome = (String) chave;
+            int s = posicao(hash(nome), c);
+            int i;
+            for (int k = 0; k < c && (i = b.getInt(l.indice + 4 * s) - 1) >= 0; k++) {
+                if (i < n && nomeIgual(i, nome)) {
+                    return i;
+                }
+                s = (s + 1) & (c - 1);
+            }
+            return -1;
+        }
+
+        private boolean nomeIgual(int i, String nome) {
+            int inicio = b.getInt(l.inicioNomes + 4 * i);
+            int fim = b.getInt(l.inicioNomes + 4 * (i + 1));
+            if (fim - inicio != nome.length() || inicio < 0 || fim > l.grandes - l.nomes) {
+                return false;
+            }
+            for (int k = 0; k < nome.length(); k++) {
+                if ((b.get(l.nomes + inicio + k) & 0xFF) != nome.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String nome(int i) {
+            int inicio = b.getInt(l.inicioNomes + 4 * i);
+            byte[] bytes = new byte[b.getInt(l.inicioNomes + 4 * (i + 1)) - inicio];
+            b.get(l.nomes + inicio, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        private Number valor(int i) {
+            switch (tipo(i)) {
+                case LONGO:
+                    return Long.valueOf(longo(i));
+                case GRANDE: {
+                    long p = l.grandes + longo(i);
+                    int tamanho = p >= l.grandes && p <= b.capacity() - 4 ? b.getInt((int) p) : -1;
+                    if (tamanho <= 0 || tamanho > b.capacity() - 4 - p) {
+                        throw new IllegalStateException("instantâneo inconsistente: número grande fora do arquivo");
+                    }
+                    byte[] bytes = new byte[tamanho];
+                    b.get((int) p + 4, bytes);
+                    return new BigInteger(bytes);
+                }
+                case SOBREPOSTA:
+                    return novas.get(nome(i));
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public Number get(Object nome) {
+            int i = procurar(nome);
+            return i >= 0 ? valor(i) : novas.get(nome);
+        }
+
+        @Override
+        public boolean containsKey(Object nome) {
+            return get(nome) != null;
+        }
+
+        @Override
+        public Number put(String nome, Number valor) {
+            int i = procurar(nome);
+            if (i < 0) {
+                return novas.put(nome, valor);
+            }
+            Number antes = valor(i);
+            if (tipo(i) == SOBREPOSTA) {
+                novas.remove(nome);
+            }
+            if (valor == null) {
+                escrever(i, INDEFINIDA, 0);
+            } else if (grande(valor)) {
+                novas.put(nome, valor);
+                escrever(i, SOBREPOSTA, 0);
+            } else {
+                escrever(i, LONGO, valor.longValue());
+            }
+            return antes;
+        }
+
+        @Override
+        public Number remove(Object nome) {
+            int i = procurar(nome);
+            return i >= 0 ? put((String) nome, null) : novas.remove(nome);
+        }
+
+        @Override
+        public void clear() {
+            for (int k = 0; k < tipos.length; k++) {
+                if (tipos[k] == null) {
+                    tipos[k] = new byte[PAGINA];
+                    valores[k] = new long[PAGINA];
+                }
+                Arrays.fill(tipos[k], INDEFINIDA);
+            }
+            novas.clear();
+        }
+
+        /** Instantâneo das variáveis definidas (não é uma visão viva); lê todos os nomes. */
+        @Override
+        public Set<Map.Entry<String, Number>> entrySet() {
+            List<Map.Entry<String, Number>> definidas = new ArrayList<Map.Entry<String, Number>>();
+            for (int i = 0; i < n; i++) {
+                Number v = valor(i);
+                if (v != null) {
+                    definidas.add(new AbstractMap.SimpleImmutableEntry<String, Number>(nome(i), v));
+                }
+            }
+            for (Map.Entry<String, Number> e : novas.entrySet()) {
+                if (e.getValue() != null && procurar(e.getKey()) < 0) {
+                    definidas.add(new AbstractMap.SimpleImmutableEntry<String, Number>(e.getKey(), e.getValue()));
+                }
+            }
+            return new AbstractSet<Map.Entry<String, Number>>() {
+                @Override
+                public Iterator<Map.Entry<String, Number>> iterator() {
+                    return Collections.unmodifiableList(definidas).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return definidas.size();
+                }
+            };
+        }
+    }
+
+    private static boolean grande(Number v) {
+        return v instanceof BigInteger && !Aritmetica.cabeEmLong((BigInteger) v);
+    }
+
+    private static int capacidade(int n) {
+        int c = 2;
+        while (c < 2L * n) {
+            c <<= 1;
+        }
+        return c;
+    }
+
+    /** O mesmo hash que String.hashCode(), calculado sobre os bytes ISO-8859-1 do nome. */
+    private static int hash(byte[] nome) {
+        int h = 0;
+        for (byte x : nome) {
+            h = 31 * h + (x & 0xFF);
+        }
+        return h;
+    }
+
+    private static int hash(String nome) {
+        return nome.hashCode();
+    }
+
+    private static int posicao(int h, int c) {
+        return (h ^ (h >>> 16)) & (c - 1);
+    }
+}
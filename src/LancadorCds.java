@@ -0,0 +1,280 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Lançador com arquivo AppCDS (Class Data Sharing) das classes do projeto e
+ * do runtime do CUP.
+ *
+ * Nas execuções curtas, a maior parte do tempo ia em carregar, verificar e
+ * ligar as classes (Scanner, Parser e suas tabelas, java_cup.runtime). Este
+ * lançador roda uma carga de treino numa JVM com -XX:ArchiveClassesAtExit,
+ * que grava as classes usadas já processadas num arquivo .jsa, e escreve um
+ * arquivo de argumentos que faz a JVM mapear esse .jsa na partida:
+ *
+ *     java LancadorCds                          (prepara, se preciso)
+ *     java @cds/java.args ModoFluxo < entrada.txt
+ *
+ * ou, num passo só (prepara se preciso e executa, ao custo de uma JVM a mais):
+ *
+ *     java LancadorCds ModoFluxo entrada.txt
+ *
+ * O arquivo é refeito sozinho quando alguma classe ou jar do classpath fica
+ * mais novo que ele, ou quando muda a JVM ou o classpath. Como a JVM só
+ * arquiva classes vindas de jars, os diretórios do classpath são empacotados
+ * em jars dentro do diretório do arquivo (que, se estiver dentro de um
+ * diretório do classpath, fica de fora do empacotamento e da verificação).
+ *
+ * O java.args aponta o -cp para esses jars, não para os diretórios: é o
+ * classpath com que o arquivo foi gravado, e a JVM recusa o arquivo com
+ * outro. Então "java @cds/java.args" roda as classes da última preparação,
+ * mesmo depois de recompilar; só o LancadorCds confere se estão atualizadas.
+ * Depois de compilar, rode "java LancadorCds" (ou use a forma de um passo)
+ * antes de voltar a usar o java.args. O CDS guarda as classes, não o
+ * resultado dos inicializadores estáticos: as tabelas do Scanner e do Parser
+ * continuam sendo desempacotadas a cada partida (são poucos ms).
+ *
+ * A carga de treino, por padrão, é gerada pelo GeradorCarga (com alguns
+ * caracteres ilegais, para passar pelos caminhos de erro) e passa por
+ * ModoFluxo, AvaliadorIterativo, AvaliadorLote e ProcessadorLote (com e sem
+ * programas compilados e otimizados); --treino usa um arquivo próprio.
+ *
+ * Uso: java LancadorCds [--diretorio d] [--treino arquivo] [--recriar] [Classe args...]
+ */
+public final class LancadorCds {
+
+    private final Path diretorio;
+    private final Path treino;
+    private final List<Path> classpath = new ArrayList<Path>();
+
+    public LancadorCds(Path diretorio, Path treino) {
+        this.diretorio = diretorio.toAbsolutePath().normalize();
+        this.treino = treino;
+        for (String s : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (!s.isEmpty()) {
+                classpath.add(Paths.get(s).toAbsolutePath().normalize());
+            }
+        }
+    }
+
+    /** O .jsa gerado. */
+    public Path arquivo() {
+        return diretorio.resolve("app.jsa");
+    }
+
+    /** Arquivo de argumentos para a JVM (java @arquivo Classe ...). */
+    public Path argumentos() {
+        return diretorio.resolve("java.args");
+    }
+
+    private Path assinatura() {
+        return diretorio.resolve("assinatura");
+    }
+
+    /** JVM e classpath para os quais o arquivo foi gerado. */
+    private String assinaturaAtual() {
+        return System.getProperty("java.home") + "\n" + System.getProperty("java.vm.version") + "\n"
+            + System.getProperty("java.class.path") + "\n";
+    }
+
+    /** Se o arquivo existe e foi gerado depois de tudo o que está no classpath, por esta JVM. */
+    public boolean atualizado() throws IOException {
+        if (!Files.isRegularFile(arquivo()) || !Files.isRegularFile(argumentos()) || !Files.isRegularFile(assinatura())) {
+            return false;
+        }
+        if (!new String(Files.readAllBytes(assinatura()), StandardCharsets.UTF_8).equals(assinaturaAtual())) {
+            return false;
+        }
+        FileTime gerado = Files.getLastModifiedTime(arquivo());
+        for (Path p : classpath) {
+            if (!Files.isDirectory(p)) {
+                if (Files.exists(p) && Files.getLastModifiedTime(p).compareTo(gerado) > 0) {
+                    return false;
+                }
+                continue;
+            }
+            try (Stream<Path> s = Files.walk(p)) {
+                if (s.anyMatch(f -> !f.startsWith(diretorio) && Files.isRegularFile(f) && modificadoDepois(f, gerado))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean modificadoDepois(Path f, FileTime t) {
+        try {
+            return Files.getLastModifiedTime(f).compareTo(t) > 0;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Empacota os diretórios do classpath, roda o treino numa JVM com
+     * -XX:ArchiveClassesAtExit e escreve o arquivo de argumentos. A saída da
+     * JVM de treino fica em treino.log, no diretório do arquivo.
+     */
+    public void preparar() throws IOException, InterruptedException {
+        Files.createDirectories(diretorio);
+        Files.deleteIfExists(assinatura());
+        List<String> jars = new ArrayList<String>();
+        int n = 0;
+        for (Path p : classpath) {
+            if (Files.isDirectory(p)) {
+                Path jar = diretorio.resolve("classes-" + n++ + ".jar");
+                empacotar(p, jar);
+                jars.add(jar.toString());
+            } else {
+                jars.add(p.toString());
+            }
+        }
+        String cp = String.join(File.pathSeparator, jars);
+        Path entrada = treino;
+        if (entrada == null) {
+            entrada = diretorio.resolve("treino.txt");
+            gerarTreino(entrada);
+        }
+        Path temporario = diretorio.resolve("app.jsa.tmp");
+        Files.deleteIfExists(temporario);
+        Process p = new ProcessBuilder(java(), "-XX:ArchiveClassesAtExit=" + temporario, "-cp", cp,
+                LancadorCds.class.getName(), "--treinar", entrada.toAbsolutePath().toString())
+            .redirectErrorStream(true)
+            .redirectOutput(diretorio.resolve("treino.log").toFile())
+            .start();
+        int codigo = p.waitFor();
+        if (codigo != 0 || !Files.isRegularFile(temporario)) {
+            throw new IOException("o treino não gerou o arquivo CDS (código " + codigo + "; ver "
+                + diretorio.resolve("treino.log") + ")");
+        }
+        Files.move(temporario, arquivo(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // sem o arquivo (JVM diferente, arquivo corrompido) a JVM só parte sem CDS, com -Xshare:auto
+        String args = "-XX:SharedArchiveFile=" + citar(arquivo().toString()) + "\n"
+            + "-Xshare:auto\n"
+            + "-cp\n" + citar(cp) + "\n";
+        Files.write(argumentos(), args.getBytes(StandardCharsets.UTF_8));
+        Files.write(assinatura(), assinaturaAtual().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Executa classe numa JVM que parte com o arquivo, com a entrada e as saídas desta. */
+    public int executar(List<String> classeEArgumentos) throws IOException, InterruptedException {
+        List<String> comando = new ArrayList<String>();
+        comando.add(java());
+        comando.add("@" + argumentos());
+        comando.addAll(classeEArgumentos);
+        return new ProcessBuilder(comando).inheritIO().start().waitFor();
+    }
+
+    private static String java() {
+        return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    /** Aspas para o arquivo de argumentos (caminhos com espaços; \ é escape dentro das aspas). */
+    private static String citar(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /** Empacota os arquivos sob raiz em jar, menos os do diretório do arquivo (onde o próprio jar é escrito). */
+    private void empacotar(Path raiz, Path jar) throws IOException {
+        Path temporario = jar.resolveSibling(jar.getFileName() + ".tmp");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(temporario));
+             Stream<Path> s = Files.walk(raiz)) {
+            for (Path f : (Iterable<Path>) s.filter(f -> !f.startsWith(diretorio) && Files.isRegularFile(f)).sorted()::iterator) {
+                out.putNextEntry(new JarEntry(raiz.relativize(f).toString().replace(File.separatorChar, '/')));
+                Files.copy(f, out);
+                out.closeEntry();
+            }
+        }
+        Files.move(temporario, jar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void gerarTreino(Path destino) throws IOException {
+        GeradorCarga.Parametros p = new GeradorCarga.Parametros();
+        p.comandos = 2000;
+        p.ilegais = 0.001;
+        try (Reader r = new GeradorCarga(p);
+             Writer w = Files.newBufferedWriter(destino, StandardCharsets.ISO_8859_1)) {
+            r.transferTo(w);
+        }
+    }
+
+    /**
+     * A carga de treino, rodada na JVM que grava o arquivo: passa arquivo
+     * pelos pontos de entrada usuais, com a saída descartada.
+     */
+    static void treinar(Path arquivo) throws IOException {
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        InputStream in = System.in;
+        Path programas = Files.createTempDirectory("cds-programas");
+        PrintStream nulo = new PrintStream(OutputStream.nullOutputStream());
+        try {
+            System.setOut(nulo);
+            System.setErr(nulo);
+            String f = arquivo.toString();
+            System.setIn(Files.newInputStream(arquivo));
+            ModoFluxo.main(new String[0]);
+            ModoFluxo.main(new String[] {f});
+            AvaliadorIterativo.main(new String[] {f});
+            AvaliadorLote.main(new String[] {f});
+            ProcessadorLote.main(new String[] {f});
+            ProcessadorLote.main(new String[] {"--iterativo", f});
+            ProcessadorLote.main(new String[] {"--programas", programas.toString(), f});
+            ProcessadorLote.main(new String[] {"--programas", programas.toString(), "--otimizar", f});
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+            System.setIn(in);
+            try (Stream<Path> s = Files.walk(programas)) {
+                for (Path p : (Iterable<Path>) s.sorted((a, b) -> b.compareTo(a))::iterator) {
+                    Files.deleteIfExists(p);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        Path diretorio = Paths.get("cds");
+        Path treino = null;
+        boolean recriar = false;
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("--"); i++) {
+            if (args[i].equals("--diretorio") && i + 1 < args.length) {
+                diretorio = Paths.get(args[++i]);
+            } else if (args[i].equals("--treino") && i + 1 < args.length) {
+                treino = Paths.get(args[++i]);
+            } else if (args[i].equals("--recriar")) {
+                recriar = true;
+            } else if (args[i].equals("--treinar") && i + 1 < args.length) {
+                try {
+                    treinar(Paths.get(args[++i]));
+                }
+                catch(Exception e) { System.out.println(e.getMessage());}
+                return;
+            } else {
+                System.out.println("uso: java LancadorCds [--diretorio d] [--treino arquivo] [--recriar] [Classe args...]");
+                return;
+            }
+        }
+        try {
+            LancadorCds lancador = new LancadorCds(diretorio, treino);
+            if (recriar || !lancador.atualizado()) {
+                long inicio = System.nanoTime();
+                lancador.preparar();
+                System.err.printf("# arquivo CDS %s gerado em %d ms%n", lancador.arquivo(), (System.nanoTime() - inicio) / 1000000);
+            }
+            if (i < args.length) {
+                System.exit(lancador.executar(List.of(args).subList(i, args.length)));
+            } else {
+                System.out.println("java @" + lancador.argumentos() + " Classe args...");
+            }
+        }
+        catch(Exception e) { System.out.println(e.getMessage());}
+    }
+}
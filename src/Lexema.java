@@ -0,0 +1,81 @@
+/**
+ * Visão sobre o texto do último token, direto no buffer do Scanner, sem
+ * copiá-lo para uma String.
+ *
+ * Cada Scanner tem um único Lexema, reaproveitado a cada token: o conteúdo só
+ * vale até a próxima chamada de next_token (ou yyreset/reiniciar) no mesmo
+ * scanner, que pode sobrescrever ou realocar o buffer. Quem precisa do texto
+ * depois disso deve guardar toString(), que cria a String.
+ *
+ * hashCode é o mesmo da String de mesmo conteúdo e equals aceita qualquer
+ * CharSequence com os mesmos caracteres, então um Lexema serve para consultar
+ * um Map de chaves String sem alocar (get, containsKey). Não o use como
+ * chave: o equals não é simétrico com o da String, e o conteúdo muda.
+ */
+public final class Lexema implements CharSequence {
+
+    private char[] buffer;
+    private int inicio;
+    private int tamanho;
+
+    /** Aponta para buffer[inicio, inicio + tamanho). */
+    void apontar(char[] buffer, int inicio, int tamanho) {
+        this.buffer = buffer;
+        this.inicio = inicio;
+        this.tamanho = tamanho;
+    }
+
+    @Override
+    public int length() {
+        return tamanho;
+    }
+
+    @Override
+    public char charAt(int i) {
+        if (i < 0 || i >= tamanho) {
+            throw new IndexOutOfBoundsException(i);
+        }
+        return buffer[inicio + i];
+    }
+
+    /** Uma String (não uma visão): o trecho também é guardado fora do buffer. */
+    @Override
+    public CharSequence subSequence(int de, int ate) {
+        if (de < 0 || ate > tamanho || de > ate) {
+            throw new IndexOutOfBoundsException("[" + de + ", " + ate + ") fora de " + tamanho);
+        }
+        return new String(buffer, inicio + de, ate - de);
+    }
+
+    /** Copia o texto para uma String, que continua válida depois do próximo token. */
+    @Override
+    public String toString() {
+        return new String(buffer, inicio, tamanho);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (int i = inicio, fim = inicio + tamanho; i < fim; i++) {
+            h = 31 * h + buffer[i];
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof CharSequence)) {
+            return false;
+        }
+        CharSequence s = (CharSequence) o;
+        if (s.length() != tamanho) {
+            return false;
+        }
+        for (int i = 0; i < tamanho; i++) {
+            if (s.charAt(i) != buffer[inicio + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
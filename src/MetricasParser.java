@@ -0,0 +1,79 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores do Parser: shifts, reduções por número de produção (os "case"
+ * do CUP$Parser$actions), profundidade da pilha LR e tempo gasto em cada fase.
+ *
+ * As fases são medidas assim: léxica é o tempo dentro de scan(), avaliação é
+ * o tempo dentro das ações semânticas (do_action) e sintática é o restante
+ * do parse(). Só os parsers do PoolAnalisadores são instrumentados; ligue com
+ * PoolAnalisadores.medir.
+ */
+public final class MetricasParser {
+
+    final LongAdder shifts = new LongAdder();
+    final LongAdder[] reducoes = new LongAdder[Parser._production_table.length];
+    final LongAccumulator profundidadeMaxima = new LongAccumulator(Math::max, 0);
+    final Histograma profundidade = new Histograma();
+    final LongAdder analises = new LongAdder();
+    final LongAdder nanosLexico = new LongAdder();
+    final LongAdder nanosAvaliacao = new LongAdder();
+    final LongAdder nanosTotal = new LongAdder();
+
+    public MetricasParser() {
+        for (int i = 0; i < reducoes.length; i++) {
+            reducoes[i] = new LongAdder();
+        }
+    }
+
+    /** Um token lido pelo parser, em nanos dentro de scan(). */
+    void token(long nanos) {
+        nanosLexico.add(nanos);
+    }
+
+    /**
+     * Um shift de fato (um terminal, ou o error da recuperação, empilhado).
+     * Contado na pilha e não em scan(): os tokens descartados pela
+     * recuperação de erros são lidos, mas nunca empilhados.
+     */
+    void shift() {
+        shifts.increment();
+    }
+
+    /** Uma redução pela produção producao, com a pilha na profundidade dada. */
+    void reducao(int producao, int profundidadePilha, long nanos) {
+        reducoes[producao].increment();
+        profundidade.registrar(profundidadePilha);
+        profundidadeMaxima.accumulate(profundidadePilha);
+        nanosAvaliacao.add(nanos);
+    }
+
+    void analise(long nanos) {
+        analises.increment();
+        nanosTotal.add(nanos);
+    }
+
+    public long reducoes(int producao) {
+        return reducoes[producao].sum();
+    }
+
+    public long profundidadeMaxima() {
+        return profundidadeMaxima.get();
+    }
+
+    /** Registra todas as métricas em r, com nomes prefixados por prefixo. */
+    public void registrar(RegistroMetricas r, String prefixo) {
+        r.contador(prefixo + "analises", analises::sum);
+        r.contador(prefixo + "shifts", shifts::sum);
+        for (int i = 0; i < reducoes.length; i++) {
+            r.contador(prefixo + "reducoes." + i, reducoes[i]::sum);
+        }
+        r.contador(prefixo + "profundidadeMaxima", profundidadeMaxima::get);
+        r.histograma(prefixo + "profundidade", profundidade);
+        r.contador(prefixo + "nanos.lexico", nanosLexico::sum);
+        r.contador(prefixo + "nanos.sintatico",
+            () -> nanosTotal.sum() - nanosLexico.sum() - nanosAvaliacao.sum());
+        r.contador(prefixo + "nanos.avaliacao", nanosAvaliacao::sum);
+    }
+}
@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores do Scanner: tokens por tipo, caracteres lidos, refills do buffer,
+ * crescimentos do buffer e caracteres ilegais, além dos histogramas de tamanho
+ * de token e de tamanho de refill.
+ *
+ * Uma instância pode ser compartilhada por scanners de várias threads (todos
+ * os contadores são LongAdder). Ligada com Scanner.medir; desligada, o scanner
+ * não chama nada daqui.
+ */
+public final class MetricasScanner {
+
+    final LongAdder[] tokens = new LongAdder[Tokens.terminalNames.length];
+    final LongAdder caracteres = new LongAdder();
+    final LongAdder refills = new LongAdder();
+    final LongAdder crescimentos = new LongAdder();
+    final LongAdder ilegais = new LongAdder();
+    final Histograma tamanhoToken = new Histograma();
+    final Histograma tamanhoRefill = new Histograma();
+
+    public MetricasScanner() {
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = new LongAdder();
+        }
+    }
+
+    void token(int tipo, int tamanho) {
+        tokens[tipo].increment();
+        tamanhoToken.registrar(tamanho);
+    }
+
+    void ilegal() {
+        ilegais.increment();
+    }
+
+    public long tokens(int tipo) {
+        return tokens[tipo].sum();
+    }
+
+    public long refills() {
+        return refills.sum();
+    }
+
+    public long crescimentos() {
+        return crescimentos.sum();
+    }
+
+    /** Registra todas as métricas em r, com nomes prefixados por prefixo. */
+    public void registrar(RegistroMetricas r, String prefixo) {
+        for (int i = 0; i < tokens.length; i++) {
+            LongAdder t = tokens[i];
+            if (i != Tokens.EOF && i != Tokens.error) {
+                r.contador(prefixo + "tokens." + Tokens.terminalNames[i], t::sum);
+            }
+        }
+        r.contador(prefixo + "caracteres", caracteres::sum);
+        r.contador(prefixo + "refills", refills::sum);
+        r.contador(prefixo + "crescimentosBuffer", crescimentos::sum);
+        r.contador(prefixo + "caracteresIlegais", ilegais::sum);
+        r.histograma(prefixo + "tamanhoToken", tamanhoToken);
+        r.histograma(prefixo + "tamanhoRefill", tamanhoRefill);
+    }
+
+    /** Embrulha o Reader do scanner para contar os refills. */
+    Reader medir(Reader r) {
+        return r instanceof LeitorMedido && ((LeitorMedido) r).metricas == this ? r : new LeitorMedido(r, this);
+    }
+
+    /**
+     * O zzRefill do scanner gerado faz uma leitura em bloco por refill, sempre
+     * no próprio zzBuffer; então cada read(char[],...) aqui é um refill, e um
+     * array maior que o último visto é um crescimento do buffer.
+     */
+    static final class LeitorMedido extends Reader {
+        final Reader fonte;
+        final MetricasScanner metricas;
+        private int capacidadeVista = -1;
+
+        LeitorMedido(Reader fonte, MetricasScanner metricas) {
+            this.fonte = fonte;
+            this.metricas = metricas;
+        }
+
+        @Override
+        public int read(char[] destino, int inicio, int tamanho) throws IOException {
+            if (capacidadeVista >= 0 && destino.length > capacidadeVista) {
+                metricas.crescimentos.increment();
+            }
+            capacidadeVista = destino.length;
+            int n = fonte.read(destino, inicio, tamanho);
+            metricas.refills.increment();
+            if (n > 0) {
+                metricas.caracteres.add(n);
+                metricas.tamanhoRefill.registrar(n);
+            }
+            return n;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = fonte.read();
+            if (c >= 0) {
+                metricas.caracteres.increment();
+            }
+            return c;
+        }
+
+        @Override
+        public void close() throws IOException {
+            fonte.close();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Modo fluxo: avalia uma entrada possivelmente infinita (um arquivo, um pipe,
+ * a entrada padrão) com teto fixo de memória.
+ *
+ * A entrada passa por um DivisorComandos, então cada comando é analisado
+ * sozinho e seus tokens são descartados assim que o inicio é reduzido;
+ * comandos ou tokens longos demais viram erro e são pulados sem serem
+ * guardados. O buffer do Scanner fica limitado pelo tamanho máximo de
+ * comando, e a tabela de símbolos pelo número máximo de variáveis. Um erro
+ * num comando não interrompe os seguintes.
+ *
+ * Resultados vão para a saída padrão, um por linha; erros vão para a saída de
+ * erro como "comando N: mensagem" (erros léxicos e de sintaxe com linha e
+ * coluna dentro do comando).
+ *
+ * Com --restaurar, as variáveis começam de um InstantaneoSimbolos mapeado (o
+ * limite de variáveis vale só para as novas); com --salvar, a tabela final é
+ * gravada como instantâneo para a próxima execução.
+ *
+ * Com --estresse N (aceita sufixos k, m e g; 0 para não parar), em vez de ler
+ * uma entrada, avalia N caracteres de uma carga sem fim do GeradorCarga, com
+ * mais identificadores do que cabem na tabela, e falha se o buffer do
+ * divisor, o do Scanner ou a tabela de símbolos passarem dos limites: a
+ * verificação de que a memória não cresce com a entrada.
+ *
+ * Uso: java ModoFluxo [--max-comando N] [--max-token N] [--max-variaveis N]
+ *          [--restaurar instantaneo] [--salvar instantaneo] [--estresse N] [arquivo]
+ */
+public class ModoFluxo implements DivisorComandos.Destino {
+
+    private final PoolAnalisadores.Analisador analisador;
+    private final DivisorComandos divisor;
+    private final PrintWriter erros;
+    private final Diagnosticos diagnosticos = new Diagnosticos(8);
+    private long comandos;
+    private long falhas;
+
+    public ModoFluxo(int maxComando, int maxToken, int maxVariaveis, PrintWriter saida, PrintWriter erros) {
+        this(maxComando, maxToken, new TabelaLimitada(maxVariaveis), saida, erros);
+    }
+
+    /** Avalia sobre a tabela de símbolos dada (por exemplo, um instantâneo restaurado). */
+    public ModoFluxo(int maxComando, int maxToken, Map<String, Number> simbolos, PrintWriter saida, PrintWriter erros) {
+        // o buffer do scanner é reduzido de volta a maxComando + 1 a cada comando
+        this.analisador = new PoolAnalisadores(0, maxComando + 1, 0).obter();
+        this.analisador.parser.simbolos = simbolos;
+        this.analisador.parser.saida = valor -> saida.println(valor);
+        this.analisador.diagnosticar(diagnosticos);
+        this.divisor = new DivisorComandos(maxComando, maxToken, this);
+        this.erros = erros;
+    }
+
+    /** Consome toda a entrada, lendo em blocos de tamanho fixo. */
+    public void executar(Reader entrada) throws IOException {
+        char[] bloco = new char[8192];
+        int n;
+        while ((n = entrada.read(bloco)) >= 0) {
+            divisor.receber(bloco, n);
+        }
+        divisor.terminar();
+    }
+
+    @Override
+    public void comando(CharSequence texto, int inicio, int fim) {
+        comandos++;
+        diagnosticos.limpar();
+        try {
+            analisador.avaliar(texto, inicio, fim);
+        } catch (Exception e) {
+            if (diagnosticos.tamanho() == 0) {
+                falhas++;
+                erros.println("comando " + comandos + ": " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+            }
+        }
+        if (diagnosticos.tamanho() > 0) {
+            falhas++;
+            for (int i = 0; i < diagnosticos.tamanho(); i++) {
+                erros.println("comando " + comandos + ": " + diagnosticos.mensagem(i));
+            }
+        }
+    }
+
+    @Override
+    public void erro(String mensagem) {
+        comandos++;
+        falhas++;
+        erros.println("comando " + comandos + ": " + mensagem);
+    }
+
+    public long comandos() {
+        return comandos;
+    }
+
+    public long falhas() {
+        return falhas;
+    }
+
+    public Map<String, Number> simbolos() {
+        return analisador.parser.simbolos;
+    }
+
+    /**
+     * Avalia caracteres (ou sem parar, se caracteres <= 0) de uma carga sem fim
+     * do GeradorCarga e verifica, a cada bloco, que os buffers e a tabela
+     * continuam dentro dos limites; lança IllegalStateException se não.
+     */
+    static void estresse(int maxComando, int maxToken, int maxVariaveis, long caracteres, PrintStream relatorio)
+            throws IOException {
+        GeradorCarga.Parametros p = new GeradorCarga.Parametros();
+        p.identificadores = 2 * maxVariaveis;
+        p.profundidade = 8;
+        p.ilegais = 0.001;
+        PrintWriter nulo = new PrintWriter(Writer.nullWriter());
+        ModoFluxo modo = new ModoFluxo(maxComando, maxToken, maxVariaveis, nulo, nulo);
+        // o scanner volta a maxComando + 1 a cada comando, e dentro dele só dobra se um token não couber
+        long limiteScanner = Math.max(Scanner.CAPACIDADE_PADRAO, 2L * (maxComando + 1));
+        int maxDivisor = 0;
+        int maxScanner = 0;
+        long lidos = 0;
+        long proximoRelatorio = 0;
+        char[] bloco = new char[8192];
+        long inicio = System.nanoTime();
+        try (Reader carga = new GeradorCarga(p)) {
+            while (caracteres <= 0 || lidos < caracteres) {
+                int n = carga.read(bloco, 0, (int) (caracteres <= 0 ? bloco.length : Math.min(bloco.length, caracteres - lidos)));
+                modo.divisor.receber(bloco, n);
+                lidos += n;
+                maxDivisor = Math.max(maxDivisor, modo.divisor.capacidade());
+                maxScanner = Math.max(maxScanner, modo.analisador.scanner.capacidadeBuffer());
+                if (maxDivisor > maxComando + 1) {
+                    throw new IllegalStateException("buffer do divisor com " + maxDivisor + " chars (limite " + (maxComando + 1) + ")");
+                }
+                if (maxScanner > limiteScanner) {
+                    throw new IllegalStateException("buffer do scanner com " + maxScanner + " chars (limite " + limiteScanner + ")");
+                }
+                if (modo.simbolos().size() > maxVariaveis) {
+                    throw new IllegalStateException("tabela com " + modo.simbolos().size() + " variáveis (limite " + maxVariaveis + ")");
+                }
+                if (lidos >= proximoRelatorio) {
+                    proximoRelatorio += 64L << 20;
+                    Runtime r = Runtime.getRuntime();
+                    relatorio.printf("# %d MB, %d comandos (%d com erro), divisor %d, scanner %d, %d variáveis, heap %d MB%n",
+                        lidos >> 20, modo.comandos(), modo.falhas(), maxDivisor, maxScanner, modo.simbolos().size(),
+                        (r.totalMemory() - r.freeMemory()) >> 20);
+                }
+            }
+        }
+        relatorio.printf("# ok: %d caracteres, %d comandos (%d com erro) em %d ms; buffers máximos: divisor %d, scanner %d; %d variáveis%n",
+            lidos, modo.comandos(), modo.falhas(), (System.nanoTime() - inicio) / 1000000,
+            maxDivisor, maxScanner, modo.simbolos().size());
+    }
+
+    /** Tabela de símbolos que recusa variáveis novas além de um limite. */
+    static final class TabelaLimitada extends HashMap<String, Number> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maximo;
+
+        TabelaLimitada(int maximo) {
+            this.maximo = maximo;
+        }
+
+        @Override
+        public Number put(String nome, Number valor) {
+            if (size() >= maximo && !containsKey(nome)) {
+                throw new IllegalStateException("limite de " + maximo + " variáveis atingido");
+            }
+            return super.put(nome, valor);
+        }
+    }
+
+    public static void main(String[] args) {
+        int maxComando = 64 * 1024;
+        int maxToken = 1024;
+        int maxVariaveis = 100000;
+        String arquivo = null;
+        Path restaurar = null;
+        Path salvar = null;
+        long estresse = -1;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--max-comando") && i + 1 < args.length) {
+                maxComando = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--max-token") && i + 1 < args.length) {
+                maxToken = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--max-variaveis") && i + 1 < args.length) {
+                maxVariaveis = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--restaurar") && i + 1 < args.length) {
+                restaurar = Paths.get(args[++i]);
+            } else if (args[i].equals("--salvar") && i + 1 < args.length) {
+                salvar = Paths.get(args[++i]);
+            } else if (args[i].equals("--estresse") && i + 1 < args.length) {
+                estresse = GeradorCarga.tamanho(args[++i]);
+            } else {
+                arquivo = args[i];
+            }
+        }
+        if (estresse >= 0) {
+            try {
+                estresse(maxComando, maxToken, maxVariaveis, estresse, System.out);
+            }
+            catch(Exception e) { System.out.println(e.getMessage());}
+            return;
+        }
+        try (Reader entrada = arquivo != null
+                ? new InputStreamReader(Files.newInputStream(Paths.get(arquivo)), StandardCharsets.ISO_8859_1)
+                : new InputStreamReader(System.in, StandardCharsets.ISO_8859_1)) {
+            PrintWriter saida = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+            PrintWriter erros = new PrintWriter(new OutputStreamWriter(System.err), true);
+            Map<String, Number> simbolos = restaurar != null
+                ? InstantaneoSimbolos.restaurar(restaurar, new TabelaLimitada(maxVariaveis))
+                : new TabelaLimitada(maxVariaveis);
+            ModoFluxo modo = new ModoFluxo(maxComando, maxToken, simbolos, saida, erros);
+            modo.executar(entrada);
+            saida.flush();
+            if (salvar != null) {
+                InstantaneoSimbolos.gravar(modo.simbolos(), salvar);
+            }
+        }
+        catch(Exception e) { System.out.println(e.getMessage());}
+    }
+}
@@ -0,0 +1,275 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Modo observação: acompanha um diretório de scripts (com os subdiretórios)
+ * pelo WatchService e reavalia só o que mudou.
+ *
+ * Eventos seguidos são agrupados: depois do primeiro, espera-se até passar
+ * um intervalo sem nenhum, e então cada arquivo alterado é processado uma
+ * vez. Cada arquivo guarda o texto da última avaliação, o fim de cada comando
+ * e sua tabela de símbolos com um registro dos valores que cada comando
+ * sobrescreveu. Num arquivo alterado, os comandos até o primeiro caractere
+ * diferente não são nem analisados de novo: os comandos seguintes são
+ * desfeitos pelo registro (a tabela volta ao estado daquele ponto) e só eles
+ * são analisados e avaliados. O custo de uma atualização depende, então, do
+ * trecho a partir da mudança, e não do tamanho do arquivo nem do diretório.
+ *
+ * Como no ModoFluxo, cada comando é avaliado sozinho e um erro num comando não
+ * impede os seguintes. Texto depois do último ';' (um comando ainda sendo
+ * escrito) é ignorado até ser terminado.
+ *
+ * Os resultados vão para um {@link Destino}; o padrão imprime
+ * "arquivo:N<TAB>valor" para cada comando reavaliado (N a partir de 1).
+ *
+ * Uso: java ModoObservacao [--espera ms] diretório
+ */
+public final class ModoObservacao {
+
+    /** Quem recebe os resultados. As chamadas vêm sempre da thread de executar. */
+    public interface Destino {
+        /** O comando de índice comando (a partir de 0) foi avaliado: valor, ou erro se erro != null. */
+        void resultado(Path arquivo, int comando, Number valor, String erro);
+
+        /** Fim da atualização de arquivo, que tem agora comandos comandos; só os a partir de desde foram reavaliados. */
+        void atualizado(Path arquivo, int comandos, int desde, long nanos);
+
+        void removido(Path arquivo);
+    }
+
+    private final Path raiz;
+    private final long espera;
+    private final Destino destino;
+    private final Map<Path, Estado> estados = new HashMap<Path, Estado>();
+    private final PoolAnalisadores.Analisador analisador = new PoolAnalisadores(0, Scanner.CAPACIDADE_PADRAO, 0).obter();
+    private final Diagnosticos diagnosticos = new Diagnosticos(1);
+    private Number valor;
+
+    /** @param espera milissegundos sem eventos antes de processar um grupo */
+    public ModoObservacao(Path raiz, long espera, Destino destino) {
+        this.raiz = raiz;
+        this.espera = espera;
+        this.destino = destino;
+        analisador.diagnosticar(diagnosticos);
+        analisador.parser.saida = v -> valor = v;
+    }
+
+    /** Avalia todos os arquivos e passa a observar o diretório, até a thread ser interrompida. */
+    public void executar() throws IOException, InterruptedException {
+        try (WatchService observador = raiz.getFileSystem().newWatchService()) {
+            Set<Path> alterados = new LinkedHashSet<Path>();
+            registrar(observador, raiz, alterados);
+            while (true) {
+                for (Path p : alterados) {
+                    atualizar(p);
+                }
+                alterados.clear();
+                WatchKey chave = observador.take();
+                do {
+                    coletar(observador, chave, alterados);
+                } while ((chave = observador.poll(espera, TimeUnit.MILLISECONDS)) != null);
+            }
+        }
+    }
+
+    /** Observa dir e seus subdiretórios, juntando os arquivos que já existem. */
+    private void registrar(WatchService observador, Path dir, Set<Path> alterados) throws IOException {
+        try (Stream<Path> s = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) s.sorted()::iterator) {
+                if (Files.isDirectory(p)) {
+                    p.register(observador, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                } else if (Files.isRegularFile(p)) {
+                    alterados.add(p);
+                }
+            }
+        }
+    }
+
+    private void coletar(WatchService observador, WatchKey chave, Set<Path> alterados) throws IOException {
+        Path dir = (Path) chave.watchable();
+        for (WatchEvent<?> e : chave.pollEvents()) {
+            if (e.kind() == OVERFLOW) {
+                // eventos perdidos: confere tudo (os arquivos iguais saem logo, pela comparação do texto)
+                alterados.addAll(estados.keySet());
+                registrar(observador, raiz, alterados);
+                continue;
+            }
+            Path p = dir.resolve((Path) e.context());
+            if (e.kind() == ENTRY_CREATE && Files.isDirectory(p)) {
+                registrar(observador, p, alterados);
+            } else {
+                alterados.add(p);
+            }
+        }
+        chave.reset();
+    }
+
+    /** Reavalia arquivo a partir do primeiro comando que mudou (ou o esquece, se não existe mais). */
+    void atualizar(Path arquivo) {
+        String texto;
+        try {
+            texto = Files.isRegularFile(arquivo)
+                ? new String(Files.readAllBytes(arquivo), StandardCharsets.ISO_8859_1) : null;
+        } catch (IOException e) {
+            texto = null;
+        }
+        if (texto == null) {
+            if (estados.remove(arquivo) != null) {
+                destino.removido(arquivo);
+            }
+            return;
+        }
+        Estado e = estados.get(arquivo);
+        if (e == null) {
+            estados.put(arquivo, e = new Estado());
+        } else if (texto.equals(e.texto)) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        int desde = e.iguais(texto);
+        e.desfazer(desde);
+        e.texto = texto;
+        analisador.parser.simbolos = e;
+        int de = desde == 0 ? 0 : e.fins[desde - 1];
+        for (int fim; (fim = texto.indexOf(';', de)) >= 0; de = fim + 1) {
+            // ';' não aparece dentro de nenhum token, então cada um fecha um comando
+            e.iniciarComando(fim + 1);
+            valor = null;
+            diagnosticos.limpar();
+            String erro = null;
+            try {
+                analisador.avaliar(texto, de, fim + 1);
+            } catch (Exception x) {
+                erro = x.getMessage() != null ? x.getMessage() : x.toString();
+            }
+            if (diagnosticos.tamanho() > 0) {
+                erro = diagnosticos.mensagem(0);
+            }
+            destino.resultado(arquivo, e.comandos - 1, erro == null ? valor : null, erro);
+        }
+        destino.atualizado(arquivo, e.comandos, desde, System.nanoTime() - inicio);
+    }
+
+    /**
+     * Estado de um arquivo. É a própria tabela de símbolos dele, e registra o
+     * valor anterior de cada escrita para poder desfazer comandos do fim para
+     * o começo.
+     */
+    static final class Estado extends HashMap<String, Number> {
+        private static final long serialVersionUID = 1L;
+
+        String texto;
+        int[] fins = new int[16];            // fim de cada comando (depois do ';')
+        int comandos;
+        private int[] inicioRegistro = new int[16];
+        private String[] nomes = new String[16];
+        private Number[] anteriores = new Number[16];
+        private int registros;
+
+        /** Quantos comandos do início continuam iguais em novo (terminam antes da primeira diferença). */
+        int iguais(String novo) {
+            if (texto == null) {
+                return 0;
+            }
+            int n = Math.min(texto.length(), novo.length());
+            int prefixo = 0;
+            while (prefixo < n && texto.charAt(prefixo) == novo.charAt(prefixo)) {
+                prefixo++;
+            }
+            int i = Arrays.binarySearch(fins, 0, comandos, prefixo);
+            return i >= 0 ? i + 1 : -i - 1;
+        }
+
+        /** Desfaz os comandos a partir de k, do último para o primeiro. */
+        void desfazer(int k) {
+            int ate = k < comandos ? inicioRegistro[k] : registros;
+            while (registros > ate) {
+                registros--;
+                if (anteriores[registros] == null) {
+                    super.remove(nomes[registros]);
+                } else {
+                    super.put(nomes[registros], anteriores[registros]);
+                }
+                nomes[registros] = null;
+                anteriores[registros] = null;
+            }
+            comandos = Math.min(comandos, k);
+        }
+
+        void iniciarComando(int fim) {
+            if (comandos == fins.length) {
+                fins = Arrays.copyOf(fins, comandos * 2);
+                inicioRegistro = Arrays.copyOf(inicioRegistro, comandos * 2);
+            }
+            fins[comandos] = fim;
+            inicioRegistro[comandos++] = registros;
+        }
+
+        @Override
+        public Number put(String nome, Number valor) {
+            Number anterior = super.put(nome, valor);
+            if (registros == nomes.length) {
+                nomes = Arrays.copyOf(nomes, registros * 2);
+                anteriores = Arrays.copyOf(anteriores, registros * 2);
+            }
+            nomes[registros] = nome;
+            anteriores[registros++] = anterior;
+            return anterior;
+        }
+    }
+
+    /** Destino padrão: imprime cada resultado e um resumo de cada atualização. */
+    static Destino console(Path raiz, PrintStream out) {
+        return new Destino() {
+            @Override
+            public void resultado(Path arquivo, int comando, Number valor, String erro) {
+                out.println(raiz.relativize(arquivo) + ":" + (comando + 1) + "\t" + (erro != null ? "erro: " + erro : valor));
+            }
+
+            @Override
+            public void atualizado(Path arquivo, int comandos, int desde, long nanos) {
+                out.printf("# %s: %d de %d comandos reavaliados, %d µs%n",
+                    raiz.relativize(arquivo), comandos - desde, comandos, nanos / 1000);
+                out.flush();
+            }
+
+            @Override
+            public void removido(Path arquivo) {
+                out.println("# " + raiz.relativize(arquivo) + ": removido");
+                out.flush();
+            }
+        };
+    }
+
+    public static void main(String[] args) {
+        long espera = 100;
+        String diretorio = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--espera") && i + 1 < args.length) {
+                espera = Long.parseLong(args[++i]);
+            } else {
+                diretorio = args[i];
+            }
+        }
+        if (diretorio == null) {
+            System.out.println("uso: java ModoObservacao [--espera ms] diretório");
+            return;
+        }
+        try {
+            Path raiz = Paths.get(diretorio).toAbsolutePath();
+            new ModoObservacao(raiz, espera, console(raiz, System.out)).executar();
+        }
+        catch(Exception e) { System.out.println(e.getMessage());}
+    }
+}
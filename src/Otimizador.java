@@ -0,0 +1,355 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Passo de otimização sobre um {@link Programa}, entre a análise e a execução.
+ *
+ * Numa única passada pelo código pós-fixo, com uma pilha abstrata no lugar da
+ * pilha de valores:
+ * - dobra operações entre constantes, como (2 + 6) * 8, com a mesma
+ *   Aritmetica da execução (então o estouro vira BigInteger do mesmo jeito);
+ * - propaga constantes pelas atribuições: depois de x = 64, um x adiante vira
+ *   o próprio 64 (e ajuda a dobrar o resto), até x receber um valor que não se
+ *   conhece;
+ * - anota leituras, escritas e operações que podem falhar (com null) para,
+ *   numa passada de trás para a frente, remover atribuições que são
+ *   sobrescritas antes de qualquer leitura.
+ *
+ * A saída de cada comando continua a mesma: cada IMPRIME fica onde estava e
+ * uma atribuição removida dá lugar a NULO, que é o resultado dela. Operações
+ * com null não são dobradas, para lançar a mesma exceção no mesmo ponto, e
+ * nenhuma atribuição antes de uma operação que pode falhar é removida, já
+ * que a tabela de símbolos fica com os valores do ponto da falha. A última
+ * atribuição de cada variável também fica, pelo mesmo motivo. Comandos com
+ * caractere ilegal ou descartados por erro (LIMPA) são copiados como estão.
+ *
+ * Supõe que só o programa escreve nas variáveis enquanto executa; com uma
+ * TabelaCompartilhada, outra thread poderia mudar entre dois comandos um
+ * valor que foi propagado.
+ */
+final class Otimizador {
+
+    // o que se sabe de um valor (na pilha abstrata ou numa variável)
+    private static final byte DESCONHECIDO = 0;
+    private static final byte CONSTANTE = 1;
+    private static final byte NULO = 2;
+
+    // eventos para a eliminação de escritas mortas
+    private static final byte LEITURA = 0;
+    private static final byte ESCRITA = 1;
+    private static final byte PODE_FALHAR = 2;
+
+    private final Programa original;
+
+    private int[] codigo = new int[64];
+    private int tamanho;
+    private final List<Number> constantes = new ArrayList<Number>();
+
+    // pilha abstrata: onde começa o código de cada valor e o que se sabe dele
+    private int[] inicios = new int[16];
+    private byte[] tipos = new byte[16];
+    private Number[] valores = new Number[16];
+    private boolean[] simples = new boolean[16];   // código de uma só instrução (constante, NULO ou CARREGA)
+    private int[] leituras = new int[16];    // evento LEITURA se o valor é só um CARREGA, senão -1
+    private int topo = -1;
+
+    private final byte[] conhecida;
+    private final Number[] valorVariavel;
+
+    private byte[] eventos = new byte[64];
+    private int[] variavelEvento = new int[64];
+    private int[] inicioEvento = new int[64];     // ESCRITA: início do código do valor atribuído
+    private int[] fimEvento = new int[64];        // ESCRITA: logo depois do ARMAZENA
+    private int[] leituraEvento = new int[64];    // ESCRITA removível: a LEITURA do valor, ou -1
+    private boolean[] removivel = new boolean[64];
+    private int quantosEventos;
+
+    private Otimizador(Programa original) {
+        this.original = original;
+        this.conhecida = new byte[original.nomes.length];
+        this.valorVariavel = new Number[original.nomes.length];
+    }
+
+    /** Programa equivalente ao p, com as mesmas saídas e o mesmo estado final das variáveis. */
+    static Programa otimizar(Programa p) {
+        return new Otimizador(p).executar();
+    }
+
+    private Programa executar() {
+        int[] c = original.codigo;
+        int pc = 0;
+        while (pc < c.length) {
+            int fim = pc;
+            boolean copiar = false;
+            while (fim < c.length && c[fim] != Programa.IMPRIME && c[fim] != Programa.LIMPA) {
+                copiar |= c[fim] == Programa.ILEGAL;
+                fim += tamanhoInstrucao(c[fim]);
+            }
+            if (fim < c.length) {
+                copiar |= c[fim] == Programa.LIMPA;
+                fim++;
+            } else {
+                copiar = true;   // código sem fim de comando: não deveria acontecer
+            }
+            if (copiar) {
+                copiar(pc, fim);
+            } else {
+                simular(pc, fim);
+            }
+            pc = fim;
+        }
+        int[] resultado = removerEscritasMortas();
+        return new Programa(original.nomes, constantes.toArray(new Number[0]), resultado);
+    }
+
+    /** Reescreve um comando com as constantes dobradas e propagadas. */
+    private void simular(int pc, int fim) {
+        int[] c = original.codigo;
+        while (pc < fim) {
+            int op = c[pc++];
+            switch (op) {
+                case Programa.EMPILHA:
+                    empilharConstante(Long.valueOf(c[pc++]));
+                    break;
+                case Programa.CONSTANTE:
+                    empilharConstante(original.constantes[c[pc++]]);
+                    break;
+                case Programa.CARREGA: {
+                    int v = c[pc++];
+                    if (conhecida[v] == CONSTANTE) {
+                        empilharConstante(valorVariavel[v]);
+                    } else if (conhecida[v] == NULO) {
+                        empilhar(NULO, null);
+                        emitir(Programa.NULO);
+                    } else {
+                        empilhar(DESCONHECIDO, null);
+                        leituras[topo] = evento(LEITURA, v);
+                        emitir(Programa.CARREGA, v);
+                    }
+                    break;
+                }
+                case Programa.ARMAZENA: {
+                    int v = c[pc++];
+                    conhecida[v] = tipos[topo];
+                    valorVariavel[v] = valores[topo];
+                    // só um valor de uma instrução pode ser descartado sem perder nada
+                    int e = evento(ESCRITA, v);
+                    inicioEvento[e] = inicios[topo];
+                    removivel[e] = simples[topo];
+                    leituraEvento[e] = leituras[topo];
+                    emitir(Programa.ARMAZENA, v);
+                    fimEvento[e] = tamanho;
+                    tipos[topo] = NULO;
+                    valores[topo] = null;
+                    simples[topo] = false;
+                    leituras[topo] = -1;
+                    break;
+                }
+                case Programa.SOMA:
+                case Programa.SUBTRAI:
+                case Programa.MULTIPLICA:
+                    if (tipos[topo] == CONSTANTE && tipos[topo - 1] == CONSTANTE) {
+                        Number b = valores[topo--];
+                        Number a = valores[topo--];
+                        tamanho = inicios[topo + 1];
+                        empilharConstante(op == Programa.SOMA ? Aritmetica.soma(a, b)
+                            : op == Programa.SUBTRAI ? Aritmetica.subtrai(a, b) : Aritmetica.multiplica(a, b));
+                    } else {
+                        topo--;
+                        tipos[topo] = DESCONHECIDO;
+                        valores[topo] = null;
+                        simples[topo] = false;
+                        leituras[topo] = -1;
+                        evento(PODE_FALHAR, -1);
+                        emitir(op);
+                    }
+                    break;
+                case Programa.NEGA:
+                    if (tipos[topo] == CONSTANTE) {
+                        Number a = valores[topo--];
+                        tamanho = inicios[topo + 1];
+                        empilharConstante(Aritmetica.nega(a));
+                    } else {
+                        tipos[topo] = DESCONHECIDO;
+                        valores[topo] = null;
+                        simples[topo] = false;
+                        leituras[topo] = -1;
+                        evento(PODE_FALHAR, -1);
+                        emitir(op);
+                    }
+                    break;
+                case Programa.IMPRIME:
+                    topo--;
+                    emitir(op);
+                    break;
+                default:
+                    throw new IllegalStateException("instrução inválida " + op + " em " + (pc - 1));
+            }
+        }
+        topo = -1;
+    }
+
+    /** Copia um comando sem mudá-lo, anotando o que ele lê e escreve. */
+    private void copiar(int pc, int fim) {
+        int[] c = original.codigo;
+        while (pc < fim) {
+            int op = c[pc++];
+            switch (op) {
+                case Programa.CONSTANTE:
+                    emitirNumero(original.constantes[c[pc++]]);
+                    break;
+                case Programa.CARREGA:
+                    evento(LEITURA, c[pc]);
+                    emitir(op, c[pc++]);
+                    break;
+                case Programa.ARMAZENA: {
+                    int v = c[pc++];
+                    conhecida[v] = DESCONHECIDO;
+                    valorVariavel[v] = null;
+                    evento(ESCRITA, v);   // não removível, mas sobrescreve
+                    emitir(op, v);
+                    break;
+                }
+                case Programa.SOMA:
+                case Programa.SUBTRAI:
+                case Programa.MULTIPLICA:
+                case Programa.NEGA:
+                    evento(PODE_FALHAR, -1);
+                    emitir(op);
+                    break;
+                case Programa.EMPILHA:
+                case Programa.ILEGAL:
+                    emitir(op, c[pc++]);
+                    break;
+                default:
+                    emitir(op);
+            }
+        }
+    }
+
+    /**
+     * De trás para a frente: uma escrita é morta se a variável é escrita de
+     * novo antes de ser lida e sem nada que possa falhar no meio. No fim do
+     * programa todas as variáveis contam como lidas.
+     */
+    private int[] removerEscritasMortas() {
+        boolean[] viva = new boolean[conhecida.length];
+        Arrays.fill(viva, true);
+        boolean[] ignorada = new boolean[quantosEventos];
+        boolean[] removida = new boolean[quantosEventos];
+        int removidas = 0;
+        for (int e = quantosEventos - 1; e >= 0; e--) {
+            switch (eventos[e]) {
+                case PODE_FALHAR:
+                    Arrays.fill(viva, true);
+                    break;
+                case LEITURA:
+                    if (!ignorada[e]) {
+                        viva[variavelEvento[e]] = true;
+                    }
+                    break;
+                default: {
+                    int v = variavelEvento[e];
+                    if (!viva[v] && removivel[e]) {
+                        removida[e] = true;
+                        removidas++;
+                        if (leituraEvento[e] >= 0) {
+                            ignorada[leituraEvento[e]] = true;
+                        }
+                    }
+                    viva[v] = false;
+                }
+            }
+        }
+        if (removidas == 0) {
+            return Arrays.copyOf(codigo, tamanho);
+        }
+        int[] resultado = new int[tamanho];
+        int n = 0;
+        int de = 0;
+        for (int e = 0; e < quantosEventos; e++) {
+            if (removida[e]) {
+                System.arraycopy(codigo, de, resultado, n, inicioEvento[e] - de);
+                n += inicioEvento[e] - de;
+                resultado[n++] = Programa.NULO;
+                de = fimEvento[e];
+            }
+        }
+        System.arraycopy(codigo, de, resultado, n, tamanho - de);
+        n += tamanho - de;
+        return Arrays.copyOf(resultado, n);
+    }
+
+    private void empilharConstante(Number n) {
+        empilhar(CONSTANTE, n);
+        emitirNumero(n);
+    }
+
+    private void empilhar(byte tipo, Number valor) {
+        if (++topo == tipos.length) {
+            inicios = Arrays.copyOf(inicios, topo * 2);
+            tipos = Arrays.copyOf(tipos, topo * 2);
+            valores = Arrays.copyOf(valores, topo * 2);
+            simples = Arrays.copyOf(simples, topo * 2);
+            leituras = Arrays.copyOf(leituras, topo * 2);
+        }
+        inicios[topo] = tamanho;
+        tipos[topo] = tipo;
+        valores[topo] = valor;
+        simples[topo] = true;
+        leituras[topo] = -1;
+    }
+
+    private int evento(byte tipo, int variavel) {
+        if (quantosEventos == eventos.length) {
+            int n = quantosEventos * 2;
+            eventos = Arrays.copyOf(eventos, n);
+            variavelEvento = Arrays.copyOf(variavelEvento, n);
+            inicioEvento = Arrays.copyOf(inicioEvento, n);
+            fimEvento = Arrays.copyOf(fimEvento, n);
+            leituraEvento = Arrays.copyOf(leituraEvento, n);
+            removivel = Arrays.copyOf(removivel, n);
+        }
+        eventos[quantosEventos] = tipo;
+        variavelEvento[quantosEventos] = variavel;
+        removivel[quantosEventos] = false;
+        leituraEvento[quantosEventos] = -1;
+        return quantosEventos++;
+    }
+
+    /** Como o Construtor: direto no código se couber em int, senão pela tabela de constantes. */
+    private void emitirNumero(Number n) {
+        if (n instanceof Long && n.longValue() == n.intValue()) {
+            emitir(Programa.EMPILHA, n.intValue());
+        } else {
+            constantes.add(n);
+            emitir(Programa.CONSTANTE, constantes.size() - 1);
+        }
+    }
+
+    private void emitir(int op) {
+        if (tamanho == codigo.length) {
+            codigo = Arrays.copyOf(codigo, codigo.length * 2);
+        }
+        codigo[tamanho++] = op;
+    }
+
+    private void emitir(int op, int operando) {
+        emitir(op);
+        emitir(operando);
+    }
+
+    private static int tamanhoInstrucao(int op) {
+        switch (op) {
+            case Programa.EMPILHA:
+            case Programa.CARREGA:
+            case Programa.ARMAZENA:
+            case Programa.ILEGAL:
+            case Programa.CONSTANTE:
+                return 2;
+            default:
+                return 1;
+        }
+    }
+}
@@ -29,10 +29,11 @@ public class Parser extends java_cup.runtime.lr_parser {
   /** Production table. */
   protected static final short _production_table[][] = 
     unpackFromStrings(new String[] {
-    "\000\013\000\002\002\005\000\002\002\004\000\002\002" +
-    "\004\000\002\003\005\000\002\003\005\000\002\003\005" +
-    "\000\002\003\004\000\002\003\005\000\002\003\003\000" +
-    "\002\003\003\000\002\003\005" });
+    "\000\017\000\002\002\004\000\002\002\004\000\002\002" +
+    "\003\000\002\003\004\000\002\003\003\000\002\003\004" +
+    "\000\002\004\003\000\002\005\005\000\002\005\005\000" +
+    "\002\005\005\000\002\005\004\000\002\005\005\000\002" +
+    "\005\003\000\002\005\003\000\002\005\005" });
 
   /** Access to production table. */
   public short[][] production_table() {return _production_table;}
@@ -40,28 +41,34 @@ public class Parser extends java_cup.runtime.lr_parser {
   /** Parse-action table. */
   protected static final short[][] _action_table = 
     unpackFromStrings(new String[] {
-    "\000\026\000\012\006\006\011\007\013\004\015\005\001" +
-    "\002\000\016\004\ufff8\005\ufff8\006\ufff8\007\ufff8\012\ufff8" +
-    "\014\027\001\002\000\014\004\ufff9\005\ufff9\006\ufff9\007" +
-    "\ufff9\012\ufff9\001\002\000\012\006\006\011\007\013\004" +
-    "\015\005\001\002\000\012\006\006\011\007\013\004\015" +
-    "\005\001\002\000\012\004\023\005\014\006\017\007\015" +
-    "\001\002\000\014\002\012\006\006\011\007\013\004\015" +
-    "\005\001\002\000\004\002\000\001\002\000\012\004\016" +
-    "\005\014\006\017\007\015\001\002\000\012\006\006\011" +
-    "\007\013\004\015\005\001\002\000\012\006\006\011\007" +
-    "\013\004\015\005\001\002\000\014\002\001\006\001\011" +
-    "\001\013\001\015\001\001\002\000\012\006\006\011\007" +
-    "\013\004\015\005\001\002\000\014\004\ufffd\005\ufffd\006" +
-    "\ufffd\007\015\012\ufffd\001\002\000\014\004\ufffc\005\ufffc" +
-    "\006\ufffc\007\ufffc\012\ufffc\001\002\000\014\004\ufffe\005" +
-    "\ufffe\006\ufffe\007\015\012\ufffe\001\002\000\014\002\uffff" +
-    "\006\uffff\011\uffff\013\uffff\015\uffff\001\002\000\012\005" +
-    "\014\006\017\007\015\012\025\001\002\000\014\004\ufffa" +
-    "\005\ufffa\006\ufffa\007\ufffa\012\ufffa\001\002\000\014\004" +
-    "\ufffb\005\ufffb\006\ufffb\007\015\012\ufffb\001\002\000\012" +
-    "\006\006\011\007\013\004\015\005\001\002\000\014\004" +
-    "\ufff7\005\014\006\017\007\015\012\ufff7\001\002" });
+    "\000\032\000\016\003\014\004\010\006\005\011\015\013" +
+    "\013\015\012\001\002\000\004\004\034\001\002\000\012" +
+    "\006\005\011\015\013\013\015\012\001\002\000\020\002" +
+    "\uffff\003\uffff\004\uffff\006\uffff\011\uffff\013\uffff\015\uffff" +
+    "\001\002\000\012\004\ufffb\005\017\006\022\007\021\001" +
+    "\002\000\020\002\ufffd\003\ufffd\004\ufffd\006\ufffd\011\ufffd" +
+    "\013\ufffd\015\ufffd\001\002\000\020\002\032\003\014\004" +
+    "\010\006\005\011\015\013\013\015\012\001\002\000\014" +
+    "\004\ufff5\005\ufff5\006\ufff5\007\ufff5\012\ufff5\001\002\000" +
+    "\016\004\ufff4\005\ufff4\006\ufff4\007\ufff4\012\ufff4\014\027" +
+    "\001\002\000\004\004\026\001\002\000\012\006\005\011" +
+    "\015\013\013\015\012\001\002\000\012\005\017\006\022" +
+    "\007\021\012\020\001\002\000\012\006\005\011\015\013" +
+    "\013\015\012\001\002\000\014\004\ufff6\005\ufff6\006\ufff6" +
+    "\007\ufff6\012\ufff6\001\002\000\012\006\005\011\015\013" +
+    "\013\015\012\001\002\000\012\006\005\011\015\013\013" +
+    "\015\012\001\002\000\014\004\ufff9\005\ufff9\006\ufff9\007" +
+    "\021\012\ufff9\001\002\000\014\004\ufff8\005\ufff8\006\ufff8" +
+    "\007\ufff8\012\ufff8\001\002\000\014\004\ufffa\005\ufffa\006" +
+    "\ufffa\007\021\012\ufffa\001\002\000\020\002\ufffc\003\ufffc" +
+    "\004\ufffc\006\ufffc\011\ufffc\013\ufffc\015\ufffc\001\002\000" +
+    "\012\006\005\011\015\013\013\015\012\001\002\000\014" +
+    "\004\ufff3\005\017\006\022\007\021\012\ufff3\001\002\000" +
+    "\020\002\001\003\001\004\001\006\001\011\001\013\001" +
+    "\015\001\001\002\000\004\002\000\001\002\000\014\004" +
+    "\ufff7\005\ufff7\006\ufff7\007\021\012\ufff7\001\002\000\020" +
+    "\002\ufffe\003\ufffe\004\ufffe\006\ufffe\011\ufffe\013\ufffe\015" +
+    "\ufffe\001\002" });
 
   /** Access to parse-action table. */
   public short[][] action_table() {return _action_table;}
@@ -69,15 +76,17 @@ public class Parser extends java_cup.runtime.lr_parser {
   /** <code>reduce_goto</code> table. */
   protected static final short[][] _reduce_table = 
     unpackFromStrings(new String[] {
-    "\000\026\000\006\002\010\003\007\001\001\000\002\001" +
-    "\001\000\002\001\001\000\004\003\025\001\001\000\004" +
-    "\003\023\001\001\000\002\001\001\000\004\003\012\001" +
-    "\001\000\002\001\001\000\002\001\001\000\004\003\021" +
-    "\001\001\000\004\003\020\001\001\000\002\001\001\000" +
-    "\004\003\017\001\001\000\002\001\001\000\002\001\001" +
-    "\000\002\001\001\000\002\001\001\000\002\001\001\000" +
-    "\002\001\001\000\002\001\001\000\004\003\027\001\001" +
-    "\000\002\001\001" });
+    "\000\032\000\012\002\010\003\005\004\003\005\006\001" +
+    "\001\000\002\001\001\000\004\005\032\001\001\000\002" +
+    "\001\001\000\002\001\001\000\002\001\001\000\010\003" +
+    "\030\004\003\005\006\001\001\000\002\001\001\000\002" +
+    "\001\001\000\002\001\001\000\004\005\015\001\001\000" +
+    "\002\001\001\000\004\005\024\001\001\000\002\001\001" +
+    "\000\004\005\023\001\001\000\004\005\022\001\001\000" +
+    "\002\001\001\000\002\001\001\000\002\001\001\000\002" +
+    "\001\001\000\004\005\027\001\001\000\002\001\001\000" +
+    "\002\001\001\000\002\001\001\000\002\001\001\000\002" +
+    "\001\001" });
 
   /** Access to <code>reduce_goto</code> table. */
   public short[][] reduce_table() {return _reduce_table;}
@@ -118,23 +127,79 @@ public class Parser extends java_cup.runtime.lr_parser {
   /** User initialization code. */
   public void user_init() throws java.lang.Exception
     {
-  
+ comandos = 0; errosSintaticos = 0; variavelEscrita = null; comando = EventosJfr.gravando() ? EventosJfr.Comando.iniciar(0) : null; 
     }
 
   /** Scan to get the next Symbol. */
   public java_cup.runtime.Symbol scan()
     throws java.lang.Exception
     {
- return s.next_token(); 
+  // o scanner ou outra fonte de tokens (ex.: CacheTokens)
+    Symbol s = getScanner().next_token();
+    if (s.value instanceof Lexema) {
+        s.value = s.value.toString();   // o token fica na pilha além do próximo: precisa da cópia
+    }
+    return s;
+
     }
 
 
     // conectar esse parser ao scanner!
     Scanner s;
-    Parser(Scanner s){ this.s=s; }
+    Parser(Scanner s){ super(s); this.s=s; }
 
     // tabela de símbolos
-    java.util.Map<String, Integer> simbolos = new java.util.HashMap<String, Integer>();
+    java.util.Map<String, Number> simbolos = new java.util.HashMap<String, Number>();
+
+    // destino do resultado de cada comando (por padrão, o console)
+    static final java.util.function.Consumer<Number> CONSOLE = e -> System.out.println(e);
+    java.util.function.Consumer<Number> saida = CONSOLE;
+
+    // programa compilado (opcional): se não for null, cada ação também emite
+    // sua instrução de pilha, na ordem das reduções (ver Programa)
+    Programa.Construtor programa;
+
+    void emitir(int op) { if (programa != null) programa.emitir(op); }
+    void emitir(int op, int arg) { if (programa != null) programa.emitir(op, arg); }
+    void emitirNumero(Number n) { if (programa != null) programa.emitirNumero(n); }
+    void emitirNome(int op, Object nome) { if (programa != null) programa.emitir(op, programa.nome(nome.toString())); }
+
+    // evento JFR do comando atual (null se não há gravação) e a última variável atribuída nele
+    EventosJfr.Comando comando;
+    long comandos;
+    Object variavelEscrita;
+
+    void fimComando() {
+        if (comando != null) {
+            comando.variavel = variavelEscrita != null ? variavelEscrita.toString() : null;
+            comando.commit();
+        }
+        variavelEscrita = null;
+        comandos++;
+        comando = EventosJfr.gravando() ? EventosJfr.Comando.iniciar(comandos) : null;
+    }
+
+    // diagnósticos (opcional): com um coletor, os erros de sintaxe são registrados
+    // nele, com linha e coluna, em vez de impressos no console
+    Diagnosticos diagnosticos;
+    int errosSintaticos;
+
+    @Override
+    public void syntax_error(Symbol s) {
+        errosSintaticos++;
+        if (diagnosticos != null) {
+            diagnosticos.registrar(Diagnosticos.SINTATICO, s.left, s.right, s.sym);
+        } else {
+            super.syntax_error(s);
+        }
+    }
+
+    @Override
+    public void report_error(String mensagem, Object info) {
+        if (diagnosticos == null) {
+            super.report_error(mensagem, info);
+        }
+    }
 
 
 /** Cup generated class to encapsulate user supplied action code.*/
@@ -162,14 +227,11 @@ class CUP$Parser$actions {
       switch (CUP$Parser$act_num)
         {
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 0: // inicio ::= inicio exp SEMI 
+          case 0: // inicio ::= inicio comando 
             {
               Object RESULT =null;
-		int eleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)).left;
-		int eright = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)).right;
-		Integer e = (Integer)((java_cup.runtime.Symbol) CUP$Parser$stack.elementAt(CUP$Parser$top-1)).value;
-		 System.out.println(e);         
-              CUP$Parser$result = parser.getSymbolFactory().newSymbol("inicio",0, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
+
+              CUP$Parser$result = parser.getSymbolFactory().newSymbol("inicio",0, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
 
@@ -188,122 +250,158 @@ class CUP$Parser$actions {
           return CUP$Parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 2: // inicio ::= exp SEMI 
+          case 2: // inicio ::= comando 
             {
               Object RESULT =null;
-		int eleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)).left;
-		int eright = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)).right;
-		Integer e = (Integer)((java_cup.runtime.Symbol) CUP$Parser$stack.elementAt(CUP$Parser$top-1)).value;
-		 System.out.println(e);         
-              CUP$Parser$result = parser.getSymbolFactory().newSymbol("inicio",0, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
+
+              CUP$Parser$result = parser.getSymbolFactory().newSymbol("inicio",0, ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
+            }
+          return CUP$Parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 3: // comando ::= impressao SEMI 
+            {
+              Object RESULT =null;
+
+              CUP$Parser$result = parser.getSymbolFactory().newSymbol("comando",1, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
+            }
+          return CUP$Parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 4: // comando ::= SEMI 
+            {
+              Object RESULT =null;
+
+              CUP$Parser$result = parser.getSymbolFactory().newSymbol("comando",1, ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
+            }
+          return CUP$Parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 5: // comando ::= error SEMI 
+            {
+              Object RESULT =null;
+		                                emitir(Programa.LIMPA);    fimComando();  
+              CUP$Parser$result = parser.getSymbolFactory().newSymbol("comando",1, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
+            }
+          return CUP$Parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 6: // impressao ::= exp 
+            {
+              Object RESULT =null;
+		int eleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
+		int eright = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
+		Number e = (Number)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
+		 saida.accept(e);               emitir(Programa.IMPRIME);  fimComando();  
+              CUP$Parser$result = parser.getSymbolFactory().newSymbol("impressao",2, ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 3: // exp ::= exp MAIS exp 
+          case 7: // exp ::= exp MAIS exp 
             {
-              Integer RESULT =null;
+              Number RESULT =null;
 		int e1left = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)).left;
 		int e1right = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)).right;
-		Integer e1 = (Integer)((java_cup.runtime.Symbol) CUP$Parser$stack.elementAt(CUP$Parser$top-2)).value;
+		Number e1 = (Number)((java_cup.runtime.Symbol) CUP$Parser$stack.elementAt(CUP$Parser$top-2)).value;
 		int e2left = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
 		int e2right = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
-		Integer e2 = (Integer)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
-		 RESULT = e1+e2;                
-              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",1, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
+		Number e2 = (Number)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
+		 RESULT = Aritmetica.soma(e1, e2);        emitir(Programa.SOMA);        
+              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",3, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 4: // exp ::= exp MENOS exp 
+          case 8: // exp ::= exp MENOS exp 
             {
-              Integer RESULT =null;
+              Number RESULT =null;
 		int e1left = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)).left;
 		int e1right = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)).right;
-		Integer e1 = (Integer)((java_cup.runtime.Symbol) CUP$Parser$stack.elementAt(CUP$Parser$top-2)).value;
+		Number e1 = (Number)((java_cup.runtime.Symbol) CUP$Parser$stack.elementAt(CUP$Parser$top-2)).value;
 		int e2left = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
 		int e2right = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
-		Integer e2 = (Integer)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
-		 RESULT = e1-e2;                
-              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",1, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
+		Number e2 = (Number)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
+		 RESULT = Aritmetica.subtrai(e1, e2);     emitir(Programa.SUBTRAI);     
+              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",3, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 5: // exp ::= exp VEZES exp 
+          case 9: // exp ::= exp VEZES exp 
             {
-              Integer RESULT =null;
+              Number RESULT =null;
 		int e1left = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)).left;
 		int e1right = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)).right;
-		Integer e1 = (Integer)((java_cup.runtime.Symbol) CUP$Parser$stack.elementAt(CUP$Parser$top-2)).value;
+		Number e1 = (Number)((java_cup.runtime.Symbol) CUP$Parser$stack.elementAt(CUP$Parser$top-2)).value;
 		int e2left = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
 		int e2right = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
-		Integer e2 = (Integer)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
-		 RESULT = e1*e2;                
-              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",1, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
+		Number e2 = (Number)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
+		 RESULT = Aritmetica.multiplica(e1, e2);  emitir(Programa.MULTIPLICA);  
+              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",3, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 6: // exp ::= MENOS exp 
+          case 10: // exp ::= MENOS exp 
             {
-              Integer RESULT =null;
+              Number RESULT =null;
 		int eleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
 		int eright = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
-		Integer e = (Integer)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
-		 RESULT = -e;                   
-              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",1, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
+		Number e = (Number)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
+		 RESULT = Aritmetica.nega(e);             emitir(Programa.NEGA);        
+              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",3, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 7: // exp ::= LPAREN exp RPAREN 
+          case 11: // exp ::= LPAREN exp RPAREN 
             {
-              Integer RESULT =null;
+              Number RESULT =null;
 		int eleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)).left;
 		int eright = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-1)).right;
-		Integer e = (Integer)((java_cup.runtime.Symbol) CUP$Parser$stack.elementAt(CUP$Parser$top-1)).value;
-		 RESULT = e;                    
-              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",1, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
+		Number e = (Number)((java_cup.runtime.Symbol) CUP$Parser$stack.elementAt(CUP$Parser$top-1)).value;
+		 RESULT = e;                                                            
+              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",3, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 8: // exp ::= NUMERO 
+          case 12: // exp ::= NUMERO 
             {
-              Integer RESULT =null;
+              Number RESULT =null;
 		int nleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
 		int nright = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
-		Integer n = (Integer)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
-		 RESULT = n;                    
-              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",1, ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
+		Number n = (Number)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
+		 RESULT = n;                              emitirNumero(n);              
+              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",3, ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 9: // exp ::= ID 
+          case 13: // exp ::= ID 
             {
-              Integer RESULT =null;
+              Number RESULT =null;
 		int ileft = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
 		int iright = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
 		Object i = (Object)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
-		 RESULT = simbolos.get(i);      
-              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",1, ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
+		 RESULT = simbolos.get(i);                emitirNome(Programa.CARREGA, i);  
+              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",3, ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 10: // exp ::= ID ATRIB exp 
+          case 14: // exp ::= ID ATRIB exp 
             {
-              Integer RESULT =null;
+              Number RESULT =null;
 		int ileft = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)).left;
 		int iright = ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)).right;
 		Object i = (Object)((java_cup.runtime.Symbol) CUP$Parser$stack.elementAt(CUP$Parser$top-2)).value;
 		int eleft = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).left;
 		int eright = ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()).right;
-		Integer e = (Integer)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
-		 simbolos.put(i.toString(), e);  
-              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",1, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
+		Number e = (Number)((java_cup.runtime.Symbol) CUP$Parser$stack.peek()).value;
+		 simbolos.put(i.toString(), e);           emitirNome(Programa.ARMAZENA, i);  variavelEscrita = i;  
+              CUP$Parser$result = parser.getSymbolFactory().newSymbol("exp",3, ((java_cup.runtime.Symbol)CUP$Parser$stack.elementAt(CUP$Parser$top-2)), ((java_cup.runtime.Symbol)CUP$Parser$stack.peek()), RESULT);
             }
           return CUP$Parser$result;
 
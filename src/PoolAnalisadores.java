@@ -0,0 +1,280 @@
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Stack;
+import java.util.function.Consumer;
+
+import java_cup.runtime.Symbol;
+import java_cup.runtime.lr_parser;
+
+/**
+ * Pool de pares Scanner/Parser reaproveitáveis, confinado a uma thread.
+ *
+ * Cada new Scanner(Reader) aloca um buffer de 16 KB e cada parse() cria um novo
+ * CUP$Parser$actions; para milhares de entradas pequenas isso domina o custo.
+ * Aqui as instâncias são reiniciadas (Scanner.reiniciar) em vez de recriadas,
+ * mantendo o buffer e a tabela de símbolos dentro dos limites configurados.
+ *
+ * Não é thread-safe: use {@link #local()} para obter o pool da thread atual.
+ */
+public class PoolAnalisadores {
+
+    private static final ThreadLocal<PoolAnalisadores> LOCAL =
+        ThreadLocal.withInitial(PoolAnalisadores::new);
+
+    /** Pool da thread atual, com a configuração padrão. */
+    public static PoolAnalisadores local() {
+        return LOCAL.get();
+    }
+
+    private final int tamanhoMaximo;
+    private final int capacidadeMaximaBuffer;
+    private final int capacidadeMaximaSimbolos;
+    private final ArrayDeque<Analisador> livres = new ArrayDeque<Analisador>();
+    private MetricasScanner metricas;
+    private MetricasParser metricasParser;
+
+    public PoolAnalisadores() {
+        this(8, Scanner.CAPACIDADE_PADRAO, 1024);
+    }
+
+    /**
+     * @param tamanhoMaximo            quantas instâncias ociosas o pool guarda
+     * @param capacidadeMaximaBuffer   tamanho máximo (em chars) do buffer mantido entre usos
+     * @param capacidadeMaximaSimbolos acima desse número de variáveis a tabela é
+     *                                 recriada em vez de limpa (clear() não encolhe o HashMap)
+     */
+    public PoolAnalisadores(int tamanhoMaximo, int capacidadeMaximaBuffer, int capacidadeMaximaSimbolos) {
+        if (tamanhoMaximo < 0 || capacidadeMaximaBuffer < 1 || capacidadeMaximaSimbolos < 0) {
+            throw new IllegalArgumentException("configuração de pool inválida");
+        }
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.capacidadeMaximaBuffer = capacidadeMaximaBuffer;
+        this.capacidadeMaximaSimbolos = capacidadeMaximaSimbolos;
+    }
+
+    /** Retira (ou cria) um analisador já posicionado no início de entrada. */
+    public Analisador obter(Reader entrada) {
+        Analisador a = obter();
+        a.scanner.reiniciar(entrada, capacidadeMaximaBuffer);
+        return a;
+    }
+
+    /** Retira (ou cria) um analisador, para uso com {@link Analisador#avaliar}. */
+    public Analisador obter() {
+        Analisador a = livres.pollFirst();
+        if (a == null) {
+            a = new Analisador(capacidadeMaximaBuffer);
+            a.scanner.medir(metricas);
+            a.parser.metricas = metricasParser;
+        }
+        return a;
+    }
+
+    /** Liga (ou desliga, com null) as métricas nos scanners e parsers deste pool. */
+    public void medir(MetricasScanner scanner, MetricasParser parser) {
+        if (scanner != metricas || parser != metricasParser) {
+            metricas = scanner;
+            metricasParser = parser;
+            for (Analisador a : livres) {
+                a.scanner.medir(scanner);
+                a.parser.metricas = parser;
+            }
+        }
+    }
+
+    /** Devolve o analisador ao pool, limpando a tabela de símbolos, a saída e os diagnósticos. */
+    public void devolver(Analisador a) {
+        if (a.parser.simbolos instanceof TabelaCompartilhada
+                || a.parser.simbolos.size() > capacidadeMaximaSimbolos) {
+            // uma tabela compartilhada não é limpa, só deixa de ser usada
+            a.parser.simbolos = new HashMap<String, Number>();
+        } else {
+            a.parser.simbolos.clear();
+        }
+        a.parser.saida = Parser.CONSOLE;
+        a.diagnosticar(null);
+        a.parser.setScanner(a.scanner);
+        a.texto.reiniciar("", 0, 0);
+        a.scanner.reiniciar(a.texto, capacidadeMaximaBuffer);
+        if (livres.size() < tamanhoMaximo) {
+            livres.addFirst(a);
+        }
+    }
+
+    /**
+     * Atalho para o caso comum: avalia um programa curto com um analisador do
+     * pool, enviando o resultado de cada comando para saida.
+     */
+    public void avaliar(CharSequence programa, Consumer<Number> saida) throws Exception {
+        Analisador a = obter();
+        try {
+            a.parser.saida = saida;
+            a.avaliar(programa, 0, programa.length());
+        } finally {
+            devolver(a);
+        }
+    }
+
+    /** Par Scanner/Parser reaproveitável. */
+    public static final class Analisador {
+        final Scanner scanner;
+        final ParserReutilizavel parser;
+        private final LeitorTexto texto = new LeitorTexto();
+        private final int capacidadeMaximaBuffer;
+
+        Analisador(int capacidadeMaximaBuffer) {
+            this.capacidadeMaximaBuffer = capacidadeMaximaBuffer;
+            scanner = new Scanner(texto);
+            parser = new ParserReutilizavel(scanner);
+        }
+
+        /**
+         * Analisa e avalia o trecho [inicio, fim) de programa, mantendo a tabela
+         * de símbolos atual (variáveis de chamadas anteriores continuam valendo).
+         */
+        public void avaliar(CharSequence programa, int inicio, int fim) throws Exception {
+            texto.reiniciar(programa, inicio, fim);
+            scanner.reiniciar(texto, capacidadeMaximaBuffer);
+            parser.parse();
+        }
+
+        /** Manda os erros léxicos e sintáticos para d (null volta a imprimi-los no console). */
+        public void diagnosticar(Diagnosticos d) {
+            scanner.diagnosticos = d;
+            parser.diagnosticos = d;
+        }
+
+        public Scanner scanner() {
+            return scanner;
+        }
+
+        public Parser parser() {
+            return parser;
+        }
+    }
+
+    /**
+     * Parser que cria o CUP$Parser$actions uma única vez, e não a cada parse(),
+     * e que alimenta um MetricasParser quando há um ligado.
+     */
+    @SuppressWarnings("rawtypes")
+    static final class ParserReutilizavel extends Parser {
+        MetricasParser metricas;
+
+        // resultado da última redução: o próximo push dele é o goto, não um shift
+        private Symbol reduzido;
+
+        ParserReutilizavel(Scanner s) {
+            super(s);
+            stack = new Pilha();
+        }
+
+        /**
+         * Pilha do lr_parser que conta os shifts: todo push que não é o símbolo
+         * inicial (com a pilha vazia, no começo do parse) nem o resultado de uma
+         * redução empilha um terminal, inclusive na recuperação de erros.
+         */
+        private final class Pilha extends Stack<Object> {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Object push(Object o) {
+                MetricasParser m = metricas;
+                if (m != null) {
+                    if (o == reduzido) {
+                        reduzido = null;
+                    } else if (!isEmpty()) {
+                        m.shift();
+                    }
+                }
+                return super.push(o);
+            }
+        }
+
+        @Override
+        protected void init_actions() {
+            if (action_obj == null) {
+                super.init_actions();
+            }
+        }
+
+        @Override
+        public Symbol parse() throws Exception {
+            MetricasParser m = metricas;
+            if (m == null) {
+                return super.parse();
+            }
+            long t = System.nanoTime();
+            try {
+                return super.parse();
+            } finally {
+                m.analise(System.nanoTime() - t);
+            }
+        }
+
+        @Override
+        public Symbol scan() throws Exception {
+            MetricasParser m = metricas;
+            if (m == null) {
+                return super.scan();
+            }
+            long t = System.nanoTime();
+            Symbol s = super.scan();
+            m.token(System.nanoTime() - t);
+            return s;
+        }
+
+        @Override
+        public Symbol do_action(int acao, lr_parser parser, Stack pilha, int topo) throws Exception {
+            MetricasParser m = metricas;
+            if (m == null) {
+                return super.do_action(acao, parser, pilha, topo);
+            }
+            long t = System.nanoTime();
+            Symbol s = super.do_action(acao, parser, pilha, topo);
+            m.reducao(acao, pilha.size(), System.nanoTime() - t);
+            reduzido = s;
+            return s;
+        }
+    }
+
+    /** Reader sobre um CharSequence que pode ser reapontado sem nova alocação. */
+    static final class LeitorTexto extends Reader {
+        private CharSequence texto = "";
+        private int pos;
+        private int fim;
+
+        void reiniciar(CharSequence texto, int inicio, int fim) {
+            this.texto = texto;
+            this.pos = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        public int read(char[] destino, int inicio, int tamanho) {
+            int restante = fim - pos;
+            if (restante <= 0) {
+                return -1;
+            }
+            int n = Math.min(tamanho, restante);
+            if (texto instanceof String) {
+                ((String) texto).getChars(pos, pos + n, destino, inicio);
+            } else if (texto instanceof CharBuffer && ((CharBuffer) texto).hasArray()) {
+                CharBuffer b = (CharBuffer) texto;
+                System.arraycopy(b.array(), b.arrayOffset() + b.position() + pos, destino, inicio, n);
+            } else {
+                for (int i = 0; i < n; i++) {
+                    destino[inicio + i] = texto.charAt(pos + i);
+                }
+            }
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
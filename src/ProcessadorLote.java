@@ -0,0 +1,458 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Modo lote: analisa e avalia muitos arquivos numa única JVM.
+ *
+ * Cada arquivo roda numa tarefa própria, com sua própria tabela de símbolos,
+ * e o número de arquivos abertos ao mesmo tempo é limitado por um semáforo
+ * (--max-abertos). Usa threads virtuais quando a JVM as oferece (Java 21+);
+ * em versões anteriores cai para um pool fixo de --max-abertos threads. Os
+ * Scanner/Parser vêm de PoolAnalisadores compartilhados pelas tarefas (no
+ * máximo um por arquivo aberto), e não de um por thread: com uma thread
+ * virtual por tarefa, um pool por thread nunca seria reaproveitado.
+ *
+ * Os resultados saem na ordem da lista assim que ficam prontos, e só uma
+ * janela de 2 * --max-abertos arquivos fica pendente ao mesmo tempo, então a
+ * memória não cresce com o número de arquivos. Os arquivos são lidos como
+ * ISO-8859-1, o alfabeto de 8 bits do scanner.
+ *
+ * Com --cache, os tokens de cada arquivo são guardados (CacheTokens) e
+ * reaproveitados enquanto o conteúdo não mudar; com --programas, o mesmo vale
+ * para o programa já compilado (CacheProgramas), que dispensa também o parser.
+ * Com --otimizar, os programas em cache passam antes pelo Otimizador (só com
+ * --programas, e não com --compartilhada: o Otimizador propaga valores entre
+ * comandos supondo que nenhuma outra thread escreve nas variáveis).
+ * Com --iterativo, os arquivos são avaliados pelo AvaliadorIterativo, que
+ * aguenta aninhamento de qualquer profundidade com pouca memória por nível.
+ * Com --compartilhada, todos os arquivos usam uma única TabelaCompartilhada
+ * em vez de uma tabela cada, e cada comando é atômico em relação aos outros
+ * arquivos. Por isso ela exige --iterativo ou --programas, que executam pela
+ * Programa.Maquina: o Parser faz o get e o put de x = x + 1 em passos
+ * separados e perderia atualizações.
+ *
+ * Erros léxicos e de sintaxe não interrompem o arquivo: o comando com erro é
+ * descartado e os primeiros erros de cada arquivo, com linha e coluna, vão para
+ * o relatório (ver Diagnosticos).
+ *
+ * Cada arquivo gera um evento JFR jflexcup.Arquivo (ver EventosJfr).
+ *
+ * Com --metricas, scanners e parsers são contabilizados (MetricasScanner e
+ * MetricasParser), as métricas ficam no JMX durante a execução e são impressas
+ * no final (e a cada N segundos, com --metricas-periodo N).
+ *
+ * Uso: java ProcessadorLote [--max-abertos N] [--relatorio arquivo] [--cache diretório]
+ *                           [--programas diretório] [--otimizar] [--iterativo] [--compartilhada]
+ *                           [--metricas] [--metricas-periodo N] (diretório|arquivo)...
+ */
+public class ProcessadorLote {
+
+    /** Quantos erros de cada arquivo são guardados com posição; os demais só são contados. */
+    static final int MAX_DIAGNOSTICOS = 16;
+
+    /** Resultado da avaliação de um arquivo. */
+    public static final class Resultado {
+        public final Path arquivo;
+        public final List<Number> valores;
+        public final String erro;          // null se o arquivo foi avaliado até o fim
+        public final Diagnosticos diagnosticos;
+        public final long nanos;
+
+        Resultado(Path arquivo, List<Number> valores, String erro, Diagnosticos diagnosticos, long nanos) {
+            this.arquivo = arquivo;
+            this.valores = valores;
+            this.erro = erro;
+            this.diagnosticos = diagnosticos;
+            this.nanos = nanos;
+        }
+    }
+
+    private final int maxAbertos;
+    private final CacheTokens cache;
+    private final CacheProgramas programas;
+    private MetricasScanner metricas;
+    private MetricasParser metricasParser;
+    private boolean iterativo;
+    private TabelaCompartilhada compartilhada;
+
+    public ProcessadorLote(int maxAbertos) {
+        this(maxAbertos, null, null);
+    }
+
+    /**
+     * @param cache     cache de tokens a usar, ou null para sempre analisar os arquivos
+     * @param programas cache de programas compilados, ou null; tem precedência sobre cache
+     */
+    public ProcessadorLote(int maxAbertos, CacheTokens cache, CacheProgramas programas) {
+        if (maxAbertos < 1) {
+            throw new IllegalArgumentException("maxAbertos deve ser positivo");
+        }
+        this.maxAbertos = maxAbertos;
+        this.cache = cache;
+        this.programas = programas;
+    }
+
+    /** Contabiliza os scanners e parsers usados por este processador (null desliga). */
+    public void medir(MetricasScanner scanner, MetricasParser parser) {
+        this.metricas = scanner;
+        this.metricasParser = parser;
+    }
+
+    /** Usa o AvaliadorIterativo no lugar do Parser (quando não há cache de programas). */
+    public void iterativo(boolean iterativo) {
+        this.iterativo = iterativo;
+    }
+
+    /**
+     * Faz todos os arquivos usarem a mesma tabela de símbolos (null: uma tabela
+     * por arquivo). Só com {@link #iterativo} ou com cache de programas.
+     */
+    public void compartilhar(TabelaCompartilhada tabela) {
+        this.compartilhada = tabela;
+    }
+
+    private Map<String, Number> tabela() {
+        return compartilhada != null ? compartilhada : new HashMap<String, Number>();
+    }
+
+    /** Avalia todos os arquivos e devolve os resultados na mesma ordem da lista. */
+    public List<Resultado> processar(List<Path> arquivos) throws InterruptedException {
+        List<Resultado> resultados = new ArrayList<Resultado>(arquivos.size());
+        processar(arquivos, resultados::add);
+        return resultados;
+    }
+
+    /**
+     * Avalia todos os arquivos, entregando cada resultado a destino (na thread
+     * que chamou) assim que ele e os anteriores ficam prontos, na ordem da lista.
+     */
+    public void processar(List<Path> arquivos, Consumer<Resultado> destino) throws InterruptedException {
+        if (compartilhada != null && programas == null && !iterativo) {
+            throw new IllegalStateException("a tabela compartilhada exige o modo iterativo ou o cache de programas");
+        }
+        Semaphore abertos = new Semaphore(maxAbertos);
+        // pools livres; como cada tarefa com arquivo aberto usa um, nunca passam de maxAbertos
+        ConcurrentLinkedQueue<PoolAnalisadores> pools = new ConcurrentLinkedQueue<PoolAnalisadores>();
+        ArrayDeque<Future<Resultado>> pendentes = new ArrayDeque<Future<Resultado>>();
+        long janela = 2L * maxAbertos;
+        ExecutorService executor = novoExecutor(maxAbertos);
+        try {
+            for (Path arquivo : arquivos) {
+                if (pendentes.size() >= janela) {
+                    entregar(pendentes.removeFirst(), destino);
+                }
+                pendentes.addLast(executor.submit(() -> {
+                    abertos.acquire();
+                    PoolAnalisadores pool = pools.poll();
+                    if (pool == null) {
+                        pool = new PoolAnalisadores();
+                    }
+                    try {
+                        pool.medir(metricas, metricasParser);
+                        return processar(arquivo, pool);
+                    } finally {
+                        pools.offer(pool);
+                        abertos.release();
+                    }
+                }));
+            }
+            while (!pendentes.isEmpty()) {
+                entregar(pendentes.removeFirst(), destino);
+            }
+        } finally {
+            for (Future<Resultado> f : pendentes) {
+                f.cancel(true);
+            }
+            executor.shutdown();
+        }
+    }
+
+    private static void entregar(Future<Resultado> f, Consumer<Resultado> destino) throws InterruptedException {
+        try {
+            destino.accept(f.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /** Avalia um arquivo, no modo configurado, com os analisadores de pool. */
+    private Resultado processar(Path arquivo, PoolAnalisadores pool) {
+        EventosJfr.Arquivo evento = EventosJfr.gravando() ? new EventosJfr.Arquivo() : null;
+        if (evento != null) {
+            evento.begin();
+        }
+        Resultado r = programas != null
+            ? executar(arquivo, programas, tabela())
+            : iterativo ? avaliarIterativo(arquivo, cache, tabela(), pool) : avaliar(arquivo, cache, tabela(), pool);
+        if (evento != null) {
+            // sem o end(), shouldCommit() compara duração 0 com o limiar do evento
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.arquivo = arquivo.toString();
+                evento.comandos = r.valores.size();
+                evento.erro = r.erro;
+                evento.commit();
+            }
+        }
+        return r;
+    }
+
+    /** Analisa e avalia um único arquivo; erros ficam registrados no resultado. */
+    static Resultado avaliar(Path arquivo, CacheTokens cache, Map<String, Number> simbolos, PoolAnalisadores pool) {
+        List<Number> valores = new ArrayList<Number>();
+        Diagnosticos diagnosticos = new Diagnosticos(MAX_DIAGNOSTICOS);
+        long inicio = System.nanoTime();
+        String erro = null;
+        try (Closeable entrada = cache != null
+                ? cache.abrir(arquivo, pool)
+                : new InputStreamReader(Files.newInputStream(arquivo), StandardCharsets.ISO_8859_1)) {
+            PoolAnalisadores.Analisador a;
+            if (entrada instanceof CacheTokens.Fonte) {
+                a = pool.obter();
+                a.parser.setScanner((CacheTokens.Fonte) entrada);
+                ((CacheTokens.Fonte) entrada).diagnosticar(diagnosticos);
+            } else {
+                a = pool.obter((Reader) entrada);
+            }
+            try {
+                a.parser.saida = valores::add;
+                a.parser.simbolos = simbolos;
+                a.diagnosticar(diagnosticos);
+                a.parser.parse();
+            } finally {
+                pool.devolver(a);
+            }
+        } catch (Exception e) {
+            erro = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+        return new Resultado(arquivo, valores, erro, diagnosticos, System.nanoTime() - inicio);
+    }
+
+    /** Como {@link #avaliar}, mas pelo AvaliadorIterativo. */
+    static Resultado avaliarIterativo(Path arquivo, CacheTokens cache, Map<String, Number> simbolos, PoolAnalisadores pool) {
+        List<Number> valores = new ArrayList<Number>();
+        Diagnosticos diagnosticos = new Diagnosticos(MAX_DIAGNOSTICOS);
+        long inicio = System.nanoTime();
+        String erro = null;
+        try (Closeable entrada = cache != null
+                ? cache.abrir(arquivo, pool)
+                : new InputStreamReader(Files.newInputStream(arquivo), StandardCharsets.ISO_8859_1)) {
+            AvaliadorIterativo avaliador = new AvaliadorIterativo(simbolos, valores::add);
+            avaliador.diagnosticar(diagnosticos);
+            if (entrada instanceof CacheTokens.Fonte) {
+                ((CacheTokens.Fonte) entrada).diagnosticar(diagnosticos);
+                avaliador.avaliar((CacheTokens.Fonte) entrada);
+            } else {
+                PoolAnalisadores.Analisador a = pool.obter((Reader) entrada);
+                try {
+                    a.diagnosticar(diagnosticos);
+                    avaliador.avaliar(a.scanner);
+                } finally {
+                    pool.devolver(a);
+                }
+            }
+        } catch (Exception e) {
+            erro = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+        return new Resultado(arquivo, valores, erro, diagnosticos, System.nanoTime() - inicio);
+    }
+
+    /** Executa um arquivo pelo cache de programas compilados. */
+    static Resultado executar(Path arquivo, CacheProgramas programas, Map<String, Number> simbolos) {
+        List<Number> valores = new ArrayList<Number>();
+        Diagnosticos diagnosticos = new Diagnosticos(MAX_DIAGNOSTICOS);
+        long inicio = System.nanoTime();
+        String erro = null;
+        try {
+            programas.executar(arquivo, simbolos, valores::add, diagnosticos);
+        } catch (Exception e) {
+            erro = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+        return new Resultado(arquivo, valores, erro, diagnosticos, System.nanoTime() - inicio);
+    }
+
+    /**
+     * Threads virtuais se disponíveis (procuradas por reflexão para compilar em
+     * Java 17); senão, um pool fixo de threads, uma por arquivo aberto.
+     */
+    static ExecutorService novoExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    /** Expande diretórios (recursivamente) em arquivos regulares, em ordem. */
+    static List<Path> listar(List<String> caminhos) throws IOException {
+        List<Path> arquivos = new ArrayList<Path>();
+        for (String c : caminhos) {
+            Path p = Paths.get(c);
+            if (Files.isDirectory(p)) {
+                try (Stream<Path> s = Files.walk(p)) {
+                    s.filter(Files::isRegularFile).sorted().forEach(arquivos::add);
+                }
+            } else {
+                arquivos.add(p);
+            }
+        }
+        return arquivos;
+    }
+
+    /**
+     * Relatório escrito à medida que os resultados chegam: uma linha por arquivo
+     * (arquivo, tempo em µs, status, valores), seguida dos diagnósticos do
+     * arquivo com "#\t" na frente, e um resumo em {@link #fim}.
+     */
+    static final class Relatorio implements Consumer<Resultado> {
+        private final PrintWriter out;
+        private int arquivos;
+        private int falhas;
+        private long comandos;
+        private long diagnosticos;
+
+        Relatorio(PrintWriter out) {
+            this.out = out;
+        }
+
+        @Override
+        public void accept(Resultado r) {
+            arquivos++;
+            comandos += r.valores.size();
+            diagnosticos += r.diagnosticos.total();
+            out.print(r.arquivo);
+            out.print('\t');
+            out.print(r.nanos / 1000);
+            out.print('\t');
+            if (r.erro == null) {
+                out.print("ok");
+            } else {
+                falhas++;
+                out.print("erro: ");
+                out.print(r.erro);
+            }
+            out.print('\t');
+            out.println(r.valores);
+            Diagnosticos d = r.diagnosticos;
+            for (int i = 0; i < d.tamanho(); i++) {
+                out.print("#\t");
+                out.println(d.mensagem(i));
+            }
+            if (d.total() > d.tamanho()) {
+                out.println("#\t... e mais " + (d.total() - d.tamanho()) + " erro(s)");
+            }
+        }
+
+        void fim(long nanosTotal) {
+            out.printf("# %d arquivos, %d comandos, %d com erro, %d diagnósticos, %d ms%n",
+                arquivos, comandos, falhas, diagnosticos, nanosTotal / 1000000);
+            out.flush();
+        }
+    }
+
+    public static void main(String[] args) {
+        int maxAbertos = 256;
+        String saida = null;
+        String diretorioCache = null;
+        String diretorioProgramas = null;
+        boolean medir = false;
+        boolean iterativo = false;
+        boolean compartilhada = false;
+        boolean otimizar = false;
+        int periodo = 0;
+        List<String> caminhos = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--max-abertos") && i + 1 < args.length) {
+                maxAbertos = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--relatorio") && i + 1 < args.length) {
+                saida = args[++i];
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                diretorioCache = args[++i];
+            } else if (args[i].equals("--programas") && i + 1 < args.length) {
+                diretorioProgramas = args[++i];
+            } else if (args[i].equals("--otimizar")) {
+                otimizar = true;
+            } else if (args[i].equals("--iterativo")) {
+                iterativo = true;
+            } else if (args[i].equals("--compartilhada")) {
+                compartilhada = true;
+            } else if (args[i].equals("--metricas")) {
+                medir = true;
+            } else if (args[i].equals("--metricas-periodo") && i + 1 < args.length) {
+                medir = true;
+                periodo = Integer.parseInt(args[++i]);
+            } else {
+                caminhos.add(args[i]);
+            }
+        }
+        if (otimizar && (diretorioProgramas == null || compartilhada)) {
+            System.out.println("--otimizar exige --programas e não combina com --compartilhada");
+            return;
+        }
+        if (compartilhada && !iterativo && diretorioProgramas == null) {
+            System.out.println("--compartilhada exige --iterativo ou --programas");
+            return;
+        }
+        if (caminhos.isEmpty()) {
+            System.out.println("uso: java ProcessadorLote [--max-abertos N] [--relatorio arquivo] [--cache diretório] [--programas diretório] [--otimizar] [--iterativo] [--compartilhada] [--metricas] [--metricas-periodo N] (diretório|arquivo)...");
+            return;
+        }
+        try {
+            List<Path> arquivos = listar(caminhos);
+            CacheTokens cache = diretorioCache != null ? new CacheTokens(Paths.get(diretorioCache)) : null;
+            CacheProgramas programas = diretorioProgramas != null ? new CacheProgramas(Paths.get(diretorioProgramas), otimizar) : null;
+            ProcessadorLote lote = new ProcessadorLote(maxAbertos, cache, programas);
+            lote.iterativo(iterativo);
+            if (compartilhada) {
+                lote.compartilhar(new TabelaCompartilhada());
+            }
+            RegistroPadrao registro = null;
+            AutoCloseable impressao = null;
+            if (medir) {
+                MetricasScanner ms = new MetricasScanner();
+                MetricasParser mp = new MetricasParser();
+                registro = new RegistroPadrao();
+                ms.registrar(registro, "scanner.");
+                mp.registrar(registro, "parser.");
+                registro.publicarJmx("ProcessadorLote");
+                if (periodo > 0) {
+                    impressao = registro.imprimirPeriodicamente(periodo * 1000L, System.err);
+                }
+                lote.medir(ms, mp);
+            }
+            PrintWriter out = saida == null
+                ? new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)))
+                : new PrintWriter(Files.newBufferedWriter(Paths.get(saida)));
+            try {
+                Relatorio relatorio = new Relatorio(out);
+                long inicio = System.nanoTime();
+                lote.processar(arquivos, relatorio);
+                long total = System.nanoTime() - inicio;
+                if (impressao != null) {
+                    impressao.close();
+                }
+                relatorio.fim(total);
+            } finally {
+                if (saida != null) {
+                    out.close();
+                } else {
+                    out.flush();
+                }
+            }
+            if (registro != null) {
+                registro.imprimir(System.out);
+            }
+        }
+        catch(Exception e) { System.out.println(e.getMessage());}
+    }
+}
@@ -0,0 +1,675 @@
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Programa já analisado, em instruções de pilha (pós-fixas).
+ *
+ * O parser é LR, então as reduções de exp acontecem em pós-ordem: basta cada
+ * ação emitir sua instrução (ver {@link Construtor} e o "parser code" do
+ * parser.cup) para obter um programa que roda sem Scanner nem Parser.
+ *
+ * A semântica é a mesma das ações do parser.cup: variável não definida vale
+ * null, atribuição resulta em null e aritmética com null lança
+ * NullPointerException.
+ *
+ * Os valores ficam em long na pilha e nas variáveis, com os Math.*Exact
+ * detectando estouro; só um valor que não cabe em 64 bits ocupa a posição
+ * paralela de BigInteger (ver Aritmetica).
+ */
+public final class Programa {
+
+    // instruções; as marcadas com * têm um operando logo em seguida
+    static final int EMPILHA = 0;       // * número (que caiba em int)
+    static final int CARREGA = 1;       // * índice do nome
+    static final int ARMAZENA = 2;      // * índice do nome
+    static final int SOMA = 3;
+    static final int SUBTRAI = 4;
+    static final int MULTIPLICA = 5;
+    static final int NEGA = 6;
+    static final int IMPRIME = 7;       // fim de um comando (inicio)
+    static final int ILEGAL = 8;        // * caractere ilegal encontrado pelo scanner
+    static final int LIMPA = 9;         // comando descartado por erro de sintaxe: esvazia a pilha
+    static final int CONSTANTE = 10;    // * índice da constante (número que não cabe em int)
+    static final int NULO = 11;         // empilha null (atribuição removida pelo Otimizador)
+
+    /**
+     * Saída que recebe sem caixa os valores que cabem em long; null e
+     * BigInteger continuam chegando por accept.
+     */
+    interface SaidaLong extends Consumer<Number> {
+        void aceitarLong(long valor);
+    }
+
+    final String[] nomes;
+    final Number[] constantes;
+    final int[] codigo;
+
+    Programa(String[] nomes, Number[] constantes, int[] codigo) {
+        this.nomes = nomes;
+        this.constantes = constantes;
+        this.codigo = codigo;
+    }
+
+    /**
+     * Executa o programa. As variáveis começam com os valores de simbolos e os
+     * valores finais são escritos de volta nele (também se a execução falhar).
+     */
+    public void executar(Map<String, Number> simbolos, Consumer<Number> saida) {
+        Maquina m = new Maquina(simbolos);
+        m.nomes(nomes, nomes.length);
+        try {
+            m.executar(codigo, codigo.length, constantes, saida);
+        } finally {
+            m.descarregar();
+        }
+    }
+
+    /**
+     * Estado da máquina de pilha: variáveis e pilha de valores. Pode executar
+     * um programa inteiro ou trechos seguidos dele (ver AvaliadorIterativo),
+     * e a tabela de nomes pode crescer entre um trecho e outro.
+     *
+     * Com uma TabelaCompartilhada, cada comando (até IMPRIME ou LIMPA) é uma
+     * transação: as variáveis são lidas da tabela com sua versão, as escritas
+     * ficam locais e, no fim do comando, os slots escritos são travados em
+     * ordem, as versões lidas conferidas e os valores gravados. Se outra thread
+     * escreveu antes, o comando é executado de novo (a saída só acontece depois
+     * da gravação, então não se repete).
+     *
+     * Com simbolos null a máquina é isolada: as variáveis começam indefinidas
+     * e ficam só nela, e {@link #reiniciar} as apaga para o próximo programa.
+     */
+    static final class Maquina {
+        private final Map<String, Number> simbolos;
+        private final TabelaCompartilhada compartilhada;
+        private TabelaCompartilhada.Variavel[] slots = new TabelaCompartilhada.Variavel[0];
+        private long[] versoesLidas = new long[0];  // -1: escrita sem leitura antes
+        private long[] usadaNoComando = new long[0];
+        private boolean[] escrita = new boolean[0];
+        private int[] usadas = new int[8];
+        private int quantasUsadas;
+        private long comando = 1;
+        private String[] nomes = new String[0];
+        private int quantos;
+        private long[] variaveis = new long[0];
+        private BigInteger[] variaveisGrandes = new BigInteger[0];
+        private boolean[] definida = new boolean[0];
+        private long[] pilha = new long[16];
+        private BigInteger[] grandes = new BigInteger[16];
+        private boolean[] nula = new boolean[16];
+        private int topo = -1;
+        // evento JFR do comando atual (null se não há gravação) e a última variável atribuída nele,
+        // como no parser.cup: cada IMPRIME ou LIMPA fecha um comando
+        private EventosJfr.Comando evento;
+        private long comandos;
+        private int variavelEscrita;
+
+        Maquina(Map<String, Number> simbolos) {
+            this.simbolos = simbolos;
+            this.compartilhada = simbolos instanceof TabelaCompartilhada ? (TabelaCompartilhada) simbolos : null;
+            primeiroComando();
+        }
+
+        private void primeiroComando() {
+            comandos = 0;
+            variavelEscrita = -1;
+            evento = EventosJfr.gravando() ? EventosJfr.Comando.iniciar(0) : null;
+        }
+
+        private void fimComando() {
+            if (evento != null) {
+                evento.variavel = variavelEscrita >= 0 ? nomes[variavelEscrita] : null;
+                evento.commit();
+            }
+            variavelEscrita = -1;
+            comandos++;
+            evento = EventosJfr.gravando() ? EventosJfr.Comando.iniciar(comandos) : null;
+        }
+
+        /** Passa a usar os n primeiros nomes; os que ainda não eram usados são lidos de simbolos. */
+        void nomes(String[] nomes, int n) {
+            int antes = quantos;
+            this.nomes = nomes;
+            if (n <= antes) {
+                return;
+            }
+            quantos = n;
+            if (n > variaveis.length) {
+                int capacidade = Math.max(n, variaveis.length * 2);
+                variaveis = Arrays.copyOf(variaveis, capacidade);
+                variaveisGrandes = Arrays.copyOf(variaveisGrandes, capacidade);
+                definida = Arrays.copyOf(definida, capacidade);
+                if (compartilhada != null) {
+                    slots = Arrays.copyOf(slots, capacidade);
+                    versoesLidas = Arrays.copyOf(versoesLidas, capacidade);
+                    usadaNoComando = Arrays.copyOf(usadaNoComando, capacidade);
+                    escrita = Arrays.copyOf(escrita, capacidade);
+                }
+            }
+            if (compartilhada != null) {
+                // lidas a cada comando, direto dos slots
+                for (int i = antes; i < n; i++) {
+                    slots[i] = compartilhada.variavel(nomes[i]);
+                }
+                return;
+            }
+            for (int i = antes; i < n && simbolos != null; i++) {
+                Number v = simbolos.get(nomes[i]);
+                if (v != null) {
+                    if (v instanceof BigInteger && !Aritmetica.cabeEmLong((BigInteger) v)) {
+                        variaveisGrandes[i] = (BigInteger) v;
+                    } else {
+                        variaveis[i] = v.longValue();
+                    }
+                    definida[i] = true;
+                }
+            }
+        }
+
+        /** Escreve os valores atuais das variáveis de volta em simbolos. */
+        void descarregar() {
+            if (compartilhada != null || simbolos == null) {
+                return;  // já gravadas no fim de cada comando, ou máquina isolada
+            }
+            for (int i = 0; i < quantos; i++) {
+                if (definida[i]) {
+                    simbolos.put(nomes[i], variaveisGrandes[i] != null ? variaveisGrandes[i] : Long.valueOf(variaveis[i]));
+                } else {
+                    simbolos.remove(nomes[i]);
+                }
+            }
+        }
+
+        /** Esquece os nomes, as variáveis e a pilha, sem liberar os arrays, para outro programa. */
+        void reiniciar() {
+            Arrays.fill(definida, 0, quantos, false);
+            Arrays.fill(variaveisGrandes, 0, quantos, null);
+            quantos = 0;
+            topo = -1;
+            primeiroComando();
+        }
+
+        /** Executa codigo[0, fim). */
+        void executar(int[] codigo, int fim, Number[] constantes, Consumer<Number> saida) {
+            long[] pilha = this.pilha;
+            BigInteger[] grandes = this.grandes;
+            boolean[] nula = this.nula;
+            int topo = this.topo;
+            int inicioComando = 0;
+            int topoComando = topo;
+            int repetidoAte = -1;     // ao repetir um comando, não reimprime caracteres ilegais
+            SaidaLong saidaLong = saida instanceof SaidaLong ? (SaidaLong) saida : null;
+            try {
+                for (int pc = 0; pc < fim; pc++) {
+                    if (topo + 2 >= pilha.length) {
+                        this.pilha = pilha = Arrays.copyOf(pilha, pilha.length * 2);
+                        this.grandes = grandes = Arrays.copyOf(grandes, grandes.length * 2);
+                        this.nula = nula = Arrays.copyOf(nula, nula.length * 2);
+                    }
+                    switch (codigo[pc]) {
+                        case EMPILHA:
+                            pilha[++topo] = codigo[++pc];
+                            grandes[topo] = null;
+                            nula[topo] = false;
+                            break;
+                        case CONSTANTE:
+                            guardar(pilha, grandes, ++topo, constantes[codigo[++pc]]);
+                            nula[topo] = false;
+                            break;
+                        case NULO:
+                            grandes[++topo] = null;
+                            nula[topo] = true;
+                            break;
+                        case CARREGA: {
+                            int v = codigo[++pc];
+                            if (compartilhada != null) {
+                                usar(v, true);
+                            }
+                            pilha[++topo] = variaveis[v];
+                            grandes[topo] = variaveisGrandes[v];
+                            nula[topo] = !definida[v];
+                            break;
+                        }
+                        case ARMAZENA: {
+                            int v = codigo[++pc];
+                            if (compartilhada != null) {
+                                usar(v, false);
+                                escrita[v] = true;
+                            }
+                            variaveis[v] = pilha[topo];
+                            variaveisGrandes[v] = grandes[topo];
+                            definida[v] = !nula[topo];
+                            nula[topo] = true;
+                            variavelEscrita = v;
+                            break;
+                        }
+                        case SOMA:
+                            operandos(nula, topo, 2);
+                            topo--;
+                            if (grandes[topo] == null && grandes[topo + 1] == null) {
+                                try {
+                                    pilha[topo] = Math.addExact(pilha[topo], pilha[topo + 1]);
+                                    break;
+                                } catch (ArithmeticException e) {
+                                    // estourou: segue pelo BigInteger
+                                }
+                            }
+                            guardar(pilha, grandes, topo, Aritmetica.soma(valor(pilha, grandes, topo), valor(pilha, grandes, topo + 1)));
+                            break;
+                        case SUBTRAI:
+                            operandos(nula, topo, 2);
+                            topo--;
+                            if (grandes[topo] == null && grandes[topo + 1] == null) {
+                                try {
+                                    pilha[topo] = Math.subtractExact(pilha[topo], pilha[topo + 1]);
+                                    break;
+                                } catch (ArithmeticException e) {
+                                    // estourou: segue pelo BigInteger
+                                }
+                            }
+                            guardar(pilha, grandes, topo, Aritmetica.subtrai(valor(pilha, grandes, topo), valor(pilha, grandes, topo + 1)));
+                            break;
+                        case MULTIPLICA:
+                            operandos(nula, topo, 2);
+                            topo--;
+                            if (grandes[topo] == null && grandes[topo + 1] == null) {
+                                try {
+                                    pilha[topo] = Math.multiplyExact(pilha[topo], pilha[topo + 1]);
+                                    break;
+                                } catch (ArithmeticException e) {
+                                    // estourou: segue pelo BigInteger
+                                }
+                            }
+                            guardar(pilha, grandes, topo, Aritmetica.multiplica(valor(pilha, grandes, topo), valor(pilha, grandes, topo + 1)));
+                            break;
+                        case NEGA:
+                            operandos(nula, topo, 1);
+                            if (grandes[topo] == null && pilha[topo] != Long.MIN_VALUE) {
+                                pilha[topo] = -pilha[topo];
+                            } else {
+                                guardar(pilha, grandes, topo, Aritmetica.nega(valor(pilha, grandes, topo)));
+                            }
+                            break;
+                        case IMPRIME:
+                            if (compartilhada != null && !confirmar()) {
+                                repetidoAte = pc;
+                                pc = inicioComando - 1;
+                                topo = topoComando;
+                                break;
+                            }
+                            if (saidaLong != null && !nula[topo] && grandes[topo] == null) {
+                                saidaLong.aceitarLong(pilha[topo]);
+                            } else {
+                                saida.accept(nula[topo] ? null : valor(pilha, grandes, topo));
+                            }
+                            topo--;
+                            inicioComando = pc + 1;
+                            topoComando = topo;
+                            fimComando();
+                            break;
+                        case ILEGAL:
+                            if (++pc > repetidoAte) {
+                                System.out.println("Caracter ilegal: " + (char) codigo[pc]);
+                            }
+                            break;
+                        case LIMPA:
+                            if (compartilhada != null && !confirmar()) {
+                                repetidoAte = pc;
+                                pc = inicioComando - 1;
+                                topo = topoComando;
+                                break;
+                            }
+                            topo = -1;
+                            inicioComando = pc + 1;
+                            topoComando = topo;
+                            fimComando();
+                            break;
+                        default:
+                            throw new IllegalStateException("instrução inválida " + codigo[pc] + " em " + pc);
+                    }
+                }
+            } finally {
+                this.topo = topo;
+                if (quantasUsadas > 0) {
+                    // comando interrompido por erro: grava o que ele já tinha
+                    // atribuído, como acontece com um HashMap (sem repetir)
+                    confirmar();
+                }
+            }
+        }
+
+        /** Primeiro uso da variável v no comando atual: lê da tabela (leitura) ou só registra. */
+        private void usar(int v, boolean leitura) {
+            if (usadaNoComando[v] == comando) {
+                return;
+            }
+            usadaNoComando[v] = comando;
+            escrita[v] = false;
+            if (quantasUsadas == usadas.length) {
+                usadas = Arrays.copyOf(usadas, usadas.length * 2);
+            }
+            usadas[quantasUsadas++] = v;
+            if (!leitura) {
+                versoesLidas[v] = -1;
+                return;
+            }
+            TabelaCompartilhada.Variavel s = slots[v];
+            long versao;
+            Number n;
+            do {
+                versao = s.versao();
+                n = s.ler();
+            } while (s.versaoAtual() != versao);
+            versoesLidas[v] = versao;
+            definida[v] = n != null;
+            if (n instanceof BigInteger && !Aritmetica.cabeEmLong((BigInteger) n)) {
+                variaveisGrandes[v] = (BigInteger) n;
+            } else {
+                variaveis[v] = n != null ? n.longValue() : 0;
+                variaveisGrandes[v] = null;
+            }
+        }
+
+        /**
+         * Fim de comando com tabela compartilhada: trava os slots escritos (em
+         * ordem de criação, para não haver impasse), confere as versões lidas e
+         * grava. Devolve false, sem gravar nada, se alguma delas mudou.
+         */
+        private boolean confirmar() {
+            int n = quantasUsadas;
+            quantasUsadas = 0;
+            comando++;
+            for (int i = 1; i < n; i++) {
+                int v = usadas[i];
+                int j = i - 1;
+                while (j >= 0 && slots[usadas[j]].ordem > slots[v].ordem) {
+                    usadas[j + 1] = usadas[j];
+                    j--;
+                }
+                usadas[j + 1] = v;
+            }
+            int travadas = 0;
+            boolean valido = true;
+            for (; travadas < n && valido; travadas++) {
+                int v = usadas[travadas];
+                if (!escrita[v]) {
+                    continue;
+                }
+                if (versoesLidas[v] < 0) {
+                    slots[v].travar();
+                } else if (!slots[v].travar(versoesLidas[v])) {
+                    valido = false;
+                    break;
+                }
+            }
+            for (int i = 0; i < n && valido; i++) {
+                int v = usadas[i];
+                if (!escrita[v] && slots[v].versaoAtual() != versoesLidas[v]) {
+                    valido = false;
+                }
+            }
+            for (int i = 0; i < travadas; i++) {
+                int v = usadas[i];
+                if (!escrita[v]) {
+                    continue;
+                }
+                if (valido) {
+                    slots[v].gravarELiberar(!definida[v] ? null
+                        : variaveisGrandes[v] != null ? variaveisGrandes[v] : Long.valueOf(variaveis[v]));
+                } else {
+                    slots[v].liberar();
+                }
+            }
+            return valido;
+        }
+    }
+
+    /** Valor da posição i da pilha, já na forma de Aritmetica (Long ou BigInteger). */
+    private static Number valor(long[] pilha, BigInteger[] grandes, int i) {
+        return grandes[i] != null ? grandes[i] : Long.valueOf(pilha[i]);
+    }
+
+    private static void guardar(long[] pilha, BigInteger[] grandes, int i, Number v) {
+        if (v instanceof BigInteger) {
+            grandes[i] = (BigInteger) v;
+        } else {
+            pilha[i] = v.longValue();
+            grandes[i] = null;
+        }
+    }
+
+    private static void operandos(boolean[] nula, int topo, int n) {
+        for (int i = 0; i < n; i++) {
+            if (nula[topo - i]) {
+                throw new NullPointerException("operação com valor null");
+            }
+        }
+    }
+
+    /** Grava nomes, constantes e código; o formato é lido de volta por {@link #ler}. */
+    void gravar(DataOutputStream out) throws IOException {
+        out.writeInt(nomes.length);
+        for (String n : nomes) {
+            byte[] b = n.getBytes(StandardCharsets.ISO_8859_1);
+            out.writeInt(b.length);
+            out.write(b);
+        }
+        out.writeInt(constantes.length);
+        for (Number c : constantes) {
+            byte[] b = Aritmetica.grande(c).toByteArray();
+            out.writeInt(b.length);
+            out.write(b);
+        }
+        out.writeInt(codigo.length);
+        for (int c : codigo) {
+            out.writeInt(c);
+        }
+    }
+
+    /**
+     * Lê um programa gravado por {@link #gravar}, a partir da posição atual de
+     * b, até o fim dele. Devolve null se um tamanho passa do que resta, se
+     * sobra algo depois do código ou se o código não é {@link #valido}.
+     */
+    static Programa ler(ByteBuffer b) {
+        int n = tamanho(b, 4);
+        if (n < 0) {
+            return null;
+        }
+        String[] nomes = new String[n];
+        for (int i = 0; i < nomes.length; i++) {
+            int tamanho = tamanho(b, 1);
+            if (tamanho < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[tamanho];
+            b.get(bytes);
+            nomes[i] = new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+        n = tamanho(b, 5);
+        if (n < 0) {
+            return null;
+        }
+        Number[] constantes = new Number[n];
+        for (int i = 0; i < constantes.length; i++) {
+            int tamanho = tamanho(b, 1);
+            if (tamanho <= 0) {
+                return null;
+            }
+            byte[] bytes = new byte[tamanho];
+            b.get(bytes);
+            constantes[i] = Aritmetica.normalizar(new BigInteger(bytes));
+        }
+        n = tamanho(b, 4);
+        if (n < 0 || 4L * n != b.remaining()) {
+            return null;
+        }
+        int[] codigo = new int[n];
+        b.asIntBuffer().get(codigo);
+        return valido(codigo, nomes.length, constantes.length) ? new Programa(nomes, constantes, codigo) : null;
+    }
+
+    /** Um tamanho lido de b, ou -1 se não há int a ler ou se tamanho itens de unidade bytes não cabem no resto. */
+    private static int tamanho(ByteBuffer b, int unidade) {
+        if (b.remaining() < 4) {
+            return -1;
+        }
+        int n = b.getInt();
+        return n >= 0 && n <= b.remaining() / unidade ? n : -1;
+    }
+
+    /**
+     * Se o código só tem instruções conhecidas, cada operando presente e dentro
+     * da sua tabela, e nenhuma instrução tira da pilha mais do que foi empilhado
+     * desde o último LIMPA. Assim um programa corrompido é recusado antes de
+     * rodar, em vez de falhar no meio, depois de já ter impresso uma parte.
+     */
+    static boolean valido(int[] codigo, int nomes, int constantes) {
+        int altura = 0;
+        for (int pc = 0; pc < codigo.length; pc++) {
+            switch (codigo[pc]) {
+                case EMPILHA:
+                    if (!operando(codigo, ++pc, Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+                        return false;
+                    }
+                    altura++;
+                    break;
+                case CARREGA:
+                case CONSTANTE:
+                    if (!operando(codigo, pc + 1, 0, (codigo[pc] == CARREGA ? nomes : constantes) - 1)) {
+                        return false;
+                    }
+                    pc++;
+                    altura++;
+                    break;
+                case ARMAZENA:
+                    if (!operando(codigo, ++pc, 0, nomes - 1) || altura < 1) {
+                        return false;
+                    }
+                    break;
+                case ILEGAL:
+                    if (!operando(codigo, ++pc, 0, Character.MAX_VALUE)) {
+                        return false;
+                    }
+                    break;
+                case NULO:
+                    altura++;
+                    break;
+                case NEGA:
+                    if (altura < 1) {
+                        return false;
+                    }
+                    break;
+                case SOMA:
+                case SUBTRAI:
+                case MULTIPLICA:
+                    if (altura < 2) {
+                        return false;
+                    }
+                    altura--;
+                    break;
+                case IMPRIME:
+                    if (altura < 1) {
+                        return false;
+                    }
+                    altura--;
+                    break;
+                case LIMPA:
+                    altura = 0;
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /** Se codigo[pc] existe e está em [minimo, maximo]. */
+    private static boolean operando(int[] codigo, int pc, int minimo, int maximo) {
+        return pc < codigo.length && codigo[pc] >= minimo && codigo[pc] <= maximo;
+    }
+
+    /** Acumula as instruções emitidas pelas ações do parser. */
+    static final class Construtor {
+        private final Map<String, Integer> indices = new HashMap<String, Integer>();
+        private String[] nomes = new String[8];
+        private Number[] constantes = new Number[4];
+        private int quantasConstantes;
+        private int[] codigo = new int[64];
+        private int tamanho;
+
+        void emitir(int op) {
+            if (tamanho == codigo.length) {
+                codigo = Arrays.copyOf(codigo, codigo.length * 2);
+            }
+            codigo[tamanho++] = op;
+        }
+
+        void emitir(int op, int operando) {
+            emitir(op);
+            emitir(operando);
+        }
+
+        /** Empilha um literal: direto no código se couber em int, senão pela tabela de constantes. */
+        void emitirNumero(Number n) {
+            if (n instanceof Long && n.longValue() == n.intValue()) {
+                emitir(EMPILHA, n.intValue());
+            } else {
+                if (quantasConstantes == constantes.length) {
+                    constantes = Arrays.copyOf(constantes, constantes.length * 2);
+                }
+                constantes[quantasConstantes] = n;
+                emitir(CONSTANTE, quantasConstantes++);
+            }
+        }
+
+        /** Índice da variável nome na tabela de nomes do programa (só copia nomes novos). */
+        int nome(CharSequence nome) {
+            Integer i = indices.get(nome);
+            if (i == null) {
+                String s = nome.toString();
+                i = indices.size();
+                if (i == nomes.length) {
+                    nomes = Arrays.copyOf(nomes, nomes.length * 2);
+                }
+                nomes[i] = s;
+                indices.put(s, i);
+            }
+            return i;
+        }
+
+        Programa construir() {
+            return new Programa(Arrays.copyOf(nomes, indices.size()),
+                Arrays.copyOf(constantes, quantasConstantes), Arrays.copyOf(codigo, tamanho));
+        }
+
+        /** Executa o código emitido até agora em m e o descarta (os nomes continuam). */
+        void executarTrecho(Maquina m, Consumer<Number> saida) {
+            m.nomes(nomes, indices.size());
+            try {
+                m.executar(codigo, tamanho, constantes, saida);
+            } finally {
+                descartarTrecho();
+            }
+        }
+
+        /** Esquece nomes e código, mantendo os arrays, para construir outro programa. */
+        void reiniciar() {
+            indices.clear();
+            descartarTrecho();
+        }
+
+        /** Descarta o código emitido até agora, sem executá-lo. */
+        void descartarTrecho() {
+            tamanho = 0;
+            Arrays.fill(constantes, 0, quantasConstantes, null);
+            quantasConstantes = 0;
+        }
+    }
+}
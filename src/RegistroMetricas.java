@@ -0,0 +1,14 @@
+import java.util.function.LongSupplier;
+
+/**
+ * Destino das métricas do scanner e do parser. As fontes só registram como
+ * ler cada valor; quem implementa decide como expor (JMX, log periódico...).
+ * Ver {@link RegistroPadrao}.
+ */
+public interface RegistroMetricas {
+
+    /** Valor numérico lido sob demanda. */
+    void contador(String nome, LongSupplier valor);
+
+    void histograma(String nome, Histograma histograma);
+}
@@ -0,0 +1,129 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.management.*;
+
+/**
+ * Registro de métricas em memória, que pode ser consultado como um retrato
+ * ({@link #instantaneo()}), impresso, ou publicado no JMX como um MBean cujos
+ * atributos são as métricas registradas.
+ *
+ * Um histograma "h" aparece como h (contagens por faixa), h.total, h.soma e h.max.
+ */
+public class RegistroPadrao implements RegistroMetricas, DynamicMBean {
+
+    private final Map<String, Supplier<Object>> valores = new LinkedHashMap<String, Supplier<Object>>();
+
+    @Override
+    public synchronized void contador(String nome, LongSupplier valor) {
+        valores.put(nome, () -> valor.getAsLong());
+    }
+
+    @Override
+    public synchronized void histograma(String nome, Histograma h) {
+        valores.put(nome, h::contagens);
+        valores.put(nome + ".total", h::total);
+        valores.put(nome + ".soma", h::soma);
+        valores.put(nome + ".max", h::maximo);
+    }
+
+    /** Valores atuais de todas as métricas, na ordem de registro. */
+    public synchronized Map<String, Object> instantaneo() {
+        Map<String, Object> r = new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, Supplier<Object>> e : valores.entrySet()) {
+            r.put(e.getKey(), e.getValue().get());
+        }
+        return r;
+    }
+
+    public void imprimir(PrintStream out) {
+        for (Map.Entry<String, Object> e : instantaneo().entrySet()) {
+            Object v = e.getValue();
+            out.println(e.getKey() + " = " + (v instanceof long[] ? java.util.Arrays.toString((long[]) v) : v));
+        }
+    }
+
+    /**
+     * Imprime um retrato em out a cada periodoMs, numa thread daemon, até o
+     * objeto devolvido ser fechado.
+     */
+    public AutoCloseable imprimirPeriodicamente(long periodoMs, PrintStream out) {
+        ScheduledExecutorService agenda = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metricas");
+            t.setDaemon(true);
+            return t;
+        });
+        agenda.scheduleAtFixedRate(() -> {
+            out.println("# métricas " + java.time.LocalTime.now());
+            imprimir(out);
+        }, periodoMs, periodoMs, TimeUnit.MILLISECONDS);
+        return agenda::shutdownNow;
+    }
+
+    /** Publica este registro no MBeanServer da plataforma como jflexcup:type=Metricas,name=nome. */
+    public ObjectName publicarJmx(String nome) throws JMException {
+        ObjectName on = new ObjectName("jflexcup:type=Metricas,name=" + ObjectName.quote(nome));
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        if (servidor.isRegistered(on)) {
+            servidor.unregisterMBean(on);
+        }
+        servidor.registerMBean(this, on);
+        return on;
+    }
+
+    // DynamicMBean: atributos somente leitura, um por métrica
+
+    @Override
+    public synchronized Object getAttribute(String nome) throws AttributeNotFoundException {
+        Supplier<Object> v = valores.get(nome);
+        if (v == null) {
+            throw new AttributeNotFoundException(nome);
+        }
+        return v.get();
+    }
+
+    @Override
+    public synchronized AttributeList getAttributes(String[] nomes) {
+        AttributeList l = new AttributeList();
+        for (String n : nomes) {
+            Supplier<Object> v = valores.get(n);
+            if (v != null) {
+                l.add(new Attribute(n, v.get()));
+            }
+        }
+        return l;
+    }
+
+    @Override
+    public void setAttribute(Attribute a) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("métricas são somente leitura: " + a.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList l) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String acao, Object[] params, String[] assinatura) throws MBeanException {
+        throw new MBeanException(new UnsupportedOperationException(acao));
+    }
+
+    @Override
+    public synchronized MBeanInfo getMBeanInfo() {
+        MBeanAttributeInfo[] attrs = new MBeanAttributeInfo[valores.size()];
+        int i = 0;
+        for (Map.Entry<String, Supplier<Object>> e : valores.entrySet()) {
+            boolean faixas = e.getValue().get() instanceof long[];
+            attrs[i++] = new MBeanAttributeInfo(e.getKey(), faixas ? "[J" : "java.lang.Long",
+                e.getKey(), true, false, false);
+        }
+        return new MBeanInfo(getClass().getName(), "Métricas do Scanner/Parser", attrs, null, null, null);
+    }
+}
@@ -10,6 +10,7 @@ public: classe publica
 cup: compatibilidade com cup
 full: estende o alfabeto com todos os valores de 8 bits
 linha: adicionar a variável int yyline, para indicar a linha do lexema
+column: adicionar a variável int yycolumn, para indicar a coluna do lexema
 char: adicionar a variável int yychar, para indicar o índice do primeiro caractere do lexema
 ignorecase: validar, independentemente de a letra ser maiúscula ou minúscula
 eofval: especifica um valor de retorno no final do arquivo
@@ -237,7 +238,6 @@ class Scanner implements java_cup.runtime.Scanner {
   private int yyline;
 
   /** Number of characters from the last newline up to the start of the matched text. */
-  @SuppressWarnings("unused")
   private int yycolumn;
 
   /** Number of characters up to the start of the matched text. */
@@ -250,6 +250,136 @@ class Scanner implements java_cup.runtime.Scanner {
   /** Whether the user-EOF-code has already been executed. */
   private boolean zzEOFDone;
 
+  /* user code: */
+	/** Visão reaproveitada sobre o texto do token atual (ver Lexema). */
+	private final Lexema lexema = new Lexema();
+
+	/** Se true, o valor de um ID é o Lexema em vez de uma String nova. */
+	private boolean lexemas;
+
+	/**
+	 * Liga ou desliga os valores de ID como Lexema: uma visão sobre o buffer,
+	 * válida só até o próximo token, em vez de uma cópia em String. Só para
+	 * consumidores que usam o valor antes de pedir o token seguinte (como o
+	 * AvaliadorIterativo); o Parser converte para String os que empilha.
+	 * Os operadores sempre valem uma String constante e os números não
+	 * passam por String nenhuma, com ou sem Lexema.
+	 */
+	public final void usarLexemas(boolean usar) {
+		lexemas = usar;
+	}
+
+	public final boolean usandoLexemas() {
+		return lexemas;
+	}
+
+	/** O texto do token atual como Lexema (sem copiar). */
+	private Lexema lexema() {
+		lexema.apontar(zzBuffer, zzStartRead, zzMarkedPos - zzStartRead);
+		return lexema;
+	}
+
+	/** Capacidade inicial do buffer de leitura (ZZ_BUFFERSIZE). */
+	static final int CAPACIDADE_PADRAO = ZZ_BUFFERSIZE;
+
+	/**
+	 * Reinicia o scanner para ler de um novo Reader, como o yyreset, mas sem
+	 * descartar o buffer que já cresceu: ele só é realocado se passou de
+	 * capacidadeMaxima. Usado pelo PoolAnalisadores para reaproveitar instâncias.
+	 */
+	public final void reiniciar(java.io.Reader reader, int capacidadeMaxima) {
+		zzReader = metricas != null ? metricas.medir(reader) : reader;
+		zzEOFDone = false;
+		yyResetPosition();
+		zzLexicalState = YYINITIAL;
+		if (zzBuffer.length > capacidadeMaxima) {
+			zzBuffer = new char[capacidadeMaxima];
+		}
+		capacidadeVista = zzBuffer.length;
+	}
+
+	/** Coletor de erros léxicos (opcional); sem ele, caracteres ilegais são avisados no console. */
+	Diagnosticos diagnosticos;
+
+	/** O que fazer com um caractere ilegal (por padrão, registrar em diagnosticos ou avisar no console). */
+	java.util.function.IntConsumer caractereIlegal = c -> {
+		if (diagnosticos != null) {
+			diagnosticos.registrar(Diagnosticos.LEXICO, yyline + 1, yycolumn + 1, c);
+		} else {
+			System.out.println("Caracter ilegal: " + (char) c);
+		}
+	};
+
+	/** Linha (a partir de 1) do último lexema. */
+	public final int linha() {
+		return yyline + 1;
+	}
+
+	/** Coluna (a partir de 1) do último lexema. */
+	public final int coluna() {
+		return yycolumn + 1;
+	}
+
+	/** Tamanho atual do buffer interno (cresce quando um token não cabe nele). */
+	public final int capacidadeBuffer() {
+		return zzBuffer.length;
+	}
+
+	/** Métricas opcionais; com null (o padrão) o custo é só um teste por token. */
+	private MetricasScanner metricas;
+
+	/**
+	 * Passa a contabilizar este scanner em m (ou desliga, com null). O Reader
+	 * atual e os próximos passados a reiniciar são embrulhados para contar os
+	 * refills; um yyreset direto não é contabilizado.
+	 */
+	public final void medir(MetricasScanner m) {
+		metricas = m;
+		if (m != null && zzReader != null) {
+			zzReader = m.medir(zzReader);
+		}
+	}
+
+	/** Tamanho do buffer no último token; se mudou, o zzRefill o fez crescer. */
+	private int capacidadeVista = ZZ_BUFFERSIZE;
+
+	private Symbol simbolo(int tipo, Object valor) {
+		if (metricas != null) {
+			metricas.token(tipo, yylength());
+		}
+		if (zzBuffer.length != capacidadeVista) {
+			if (EventosJfr.gravando()) {
+				bufferCresceu();
+			}
+			capacidadeVista = zzBuffer.length;
+		}
+		return new Symbol(tipo, yyline + 1, yycolumn + 1, valor);
+	}
+
+	private void bufferCresceu() {
+		EventosJfr.CrescimentoBuffer e = new EventosJfr.CrescimentoBuffer();
+		e.anterior = capacidadeVista;
+		e.nova = zzBuffer.length;
+		e.tamanhoToken = yylength();
+		e.commit();
+	}
+
+	private void ilegal() {
+		if (metricas != null) {
+			metricas.ilegal();
+		}
+		if (EventosJfr.gravando()) {
+			EventosJfr.CaractereIlegal e = new EventosJfr.CaractereIlegal();
+			if (e.isEnabled()) {
+				e.caractere = yycharat(0);
+				e.linha = yyline + 1;
+				e.posicao = yychar;
+				e.commit();
+			}
+		}
+		caractereIlegal.accept(yycharat(0));
+	}
+
 
   /**
    * Creates a new scanner
@@ -548,10 +678,12 @@ class Scanner implements java_cup.runtime.Scanner {
         case '\u2028':  // fall through
         case '\u2029':
           yyline++;
+          yycolumn = 0;
           zzR = false;
           break;
         case '\r':
           yyline++;
+          yycolumn = 0;
           zzR = true;
           break;
         case '\n':
@@ -559,10 +691,12 @@ class Scanner implements java_cup.runtime.Scanner {
             zzR = false;
           else {
             yyline++;
+            yycolumn = 0;
           }
           break;
         default:
           zzR = false;
+          yycolumn += zzCharCount;
         }
       }
 
@@ -655,7 +789,7 @@ class Scanner implements java_cup.runtime.Scanner {
       else {
         switch (zzAction < 0 ? zzAction : ZZ_ACTION[zzAction]) {
           case 1:
-            { System.out.println("Caracter ilegal: " + yytext());
+            { ilegal();
             }
             // fall through
           case 12: break;
@@ -665,47 +799,47 @@ class Scanner implements java_cup.runtime.Scanner {
             // fall through
           case 13: break;
           case 3:
-            { return new Symbol(Tokens.LPAREN, yytext());
+            { return simbolo(Tokens.LPAREN, "(");
             }
             // fall through
           case 14: break;
           case 4:
-            { return new Symbol(Tokens.RPAREN, yytext());
+            { return simbolo(Tokens.RPAREN, ")");
             }
             // fall through
           case 15: break;
           case 5:
-            { return new Symbol(Tokens.VEZES, yytext());
+            { return simbolo(Tokens.VEZES, "*");
             }
             // fall through
           case 16: break;
           case 6:
-            { return new Symbol(Tokens.MAIS, yytext());
+            { return simbolo(Tokens.MAIS, "+");
             }
             // fall through
           case 17: break;
           case 7:
-            { return new Symbol(Tokens.MENOS, yytext());
+            { return simbolo(Tokens.MENOS, "-");
             }
             // fall through
           case 18: break;
           case 8:
-            { return new Symbol(Tokens.NUMERO, new Integer(yytext()));
+            { return simbolo(Tokens.NUMERO, Aritmetica.literal(lexema()));
             }
             // fall through
           case 19: break;
           case 9:
-            { return new Symbol(Tokens.SEMI, yytext());
+            { return simbolo(Tokens.SEMI, ";");
             }
             // fall through
           case 20: break;
           case 10:
-            { return new Symbol(Tokens.ATRIB, yytext());
+            { return simbolo(Tokens.ATRIB, "=");
             }
             // fall through
           case 21: break;
           case 11:
-            { return new Symbol(Tokens.ID, yytext());
+            { return simbolo(Tokens.ID, lexemas ? lexema() : yytext());
             }
             // fall through
           case 22: break;
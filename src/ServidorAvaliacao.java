@@ -0,0 +1,208 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Modo servidor: mantém a JVM (e as classes do Scanner/Parser) aquecidas e
+ * avalia comandos enviados por clientes locais, via TCP em 127.0.0.1 ou via
+ * socket Unix.
+ *
+ * Cada conexão é uma sessão com sua própria tabela de símbolos. O cliente
+ * envia comandos terminados por ';' e recebe uma linha por comando, na mesma
+ * ordem: o valor, "null" ou "erro: mensagem" (para erros de sintaxe, com linha
+ * e coluna dentro do comando; caracteres ilegais são só ignorados). Vários comandos podem ser
+ * enviados sem esperar resposta (pipelining); as respostas de um mesmo bloco
+ * lido são enviadas juntas. Comandos e tokens longos demais são recusados
+ * com erro (ver DivisorComandos), sem acumular memória por conexão.
+ *
+ * Uso: java ServidorAvaliacao [--porta N | --unix caminho]
+ */
+public class ServidorAvaliacao {
+
+    static final int MAX_COMANDO = 1 << 20;
+    static final int MAX_TOKEN = 4096;
+    /** Quantos pools ociosos ficam guardados depois de um pico de sessões. */
+    static final int MAX_POOLS_LIVRES = 64;
+
+    private final ServerSocketChannel canal;
+    private final ExecutorService sessoes = novoExecutor();
+    // pools livres; cada sessão usa um, então só passam de MAX_POOLS_LIVRES durante um pico
+    private final ConcurrentLinkedQueue<PoolAnalisadores> pools = new ConcurrentLinkedQueue<PoolAnalisadores>();
+    private final AtomicInteger poolsLivres = new AtomicInteger();
+
+    public ServidorAvaliacao(ServerSocketChannel canal) {
+        this.canal = canal;
+    }
+
+    /** Servidor TCP escutando apenas na interface local. */
+    public static ServidorAvaliacao tcp(int porta) throws IOException {
+        SocketAddress endereco = new InetSocketAddress(InetAddress.getLoopbackAddress(), porta);
+        return new ServidorAvaliacao(ServerSocketChannel.open().bind(endereco));
+    }
+
+    /** Servidor num socket Unix (o arquivo é recriado se já existir). */
+    public static ServidorAvaliacao unix(Path caminho) throws IOException {
+        Files.deleteIfExists(caminho);
+        ServerSocketChannel c = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        return new ServidorAvaliacao(c.bind(UnixDomainSocketAddress.of(caminho)));
+    }
+
+    /** Aceita conexões até o canal ser fechado. */
+    public void executar() throws IOException {
+        try {
+            while (canal.isOpen()) {
+                SocketChannel cliente = canal.accept();
+                sessoes.execute(() -> atender(cliente));
+            }
+        } finally {
+            sessoes.shutdown();
+        }
+    }
+
+    public void fechar() throws IOException {
+        canal.close();
+    }
+
+    /**
+     * Uma sessão: lê blocos, avalia cada comando completo e responde. O
+     * analisador vem de um pool da fila, como no ProcessadorLote: cada sessão
+     * roda na sua thread (virtual), então PoolAnalisadores.local() daria um
+     * pool novo a cada conexão, nunca reaproveitado.
+     */
+    void atender(SocketChannel cliente) {
+        PoolAnalisadores pool = pools.poll();
+        if (pool != null) {
+            poolsLivres.decrementAndGet();
+        } else {
+            pool = new PoolAnalisadores();
+        }
+        PoolAnalisadores.Analisador a = pool.obter();
+        try (SocketChannel c = cliente;
+             Reader in = new InputStreamReader(Channels.newInputStream(c), StandardCharsets.ISO_8859_1);
+             Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(c), StandardCharsets.ISO_8859_1))) {
+            Sessao sessao = new Sessao(a, out);
+            char[] bloco = new char[8192];
+            int n;
+            while ((n = in.read(bloco)) >= 0) {
+                sessao.receber(bloco, n);
+                out.flush();
+            }
+            sessao.terminar();
+            out.flush();
+        } catch (IOException e) {
+            // cliente desconectou; nada a responder
+        } finally {
+            pool.devolver(a);
+            if (poolsLivres.incrementAndGet() <= MAX_POOLS_LIVRES) {
+                pools.offer(pool);
+            } else {
+                poolsLivres.decrementAndGet();
+            }
+        }
+    }
+
+    /** Estado de uma conexão: o comando ainda sem ';' e o analisador com as variáveis da sessão. */
+    static final class Sessao implements DivisorComandos.Destino {
+        private final PoolAnalisadores.Analisador analisador;
+        private final Writer out;
+        private final DivisorComandos divisor = new DivisorComandos(MAX_COMANDO, MAX_TOKEN, this);
+        private final Diagnosticos diagnosticos = new Diagnosticos(8);
+
+        Sessao(PoolAnalisadores.Analisador analisador, Writer out) {
+            this.analisador = analisador;
+            this.out = out;
+            analisador.parser.saida = valor -> escrever(String.valueOf(valor));
+            analisador.diagnosticar(diagnosticos);
+        }
+
+        /** Acrescenta um bloco lido e avalia todos os comandos que ficaram completos. */
+        void receber(char[] bloco, int n) throws IOException {
+            divisor.receber(bloco, n);
+        }
+
+        /** Fim da conexão: um resto sem ';' ainda é avaliado (e provavelmente dá erro). */
+        void terminar() throws IOException {
+            divisor.terminar();
+        }
+
+        @Override
+        public void comando(CharSequence texto, int inicio, int fim) throws IOException {
+            diagnosticos.limpar();
+            try {
+                analisador.avaliar(texto, inicio, fim);
+                if (analisador.parser.errosSintaticos > 0) {
+                    // o comando foi descartado pela recuperação de erro, sem valor
+                    erro(primeiroErroSintatico());
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } catch (Exception e) {
+                erro(analisador.parser.errosSintaticos > 0 ? primeiroErroSintatico()
+                    : e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        }
+
+        private String primeiroErroSintatico() {
+            for (int i = 0; i < diagnosticos.tamanho(); i++) {
+                if (diagnosticos.tipo(i) == Diagnosticos.SINTATICO) {
+                    return diagnosticos.mensagem(i);
+                }
+            }
+            return "erro de sintaxe";
+        }
+
+        @Override
+        public void erro(String mensagem) {
+            escrever("erro: " + mensagem);
+        }
+
+        private void escrever(String linha) {
+            try {
+                out.write(linha);
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /** Uma thread (virtual, se houver) por sessão. */
+    static ExecutorService novoExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            ServidorAvaliacao servidor;
+            if (args.length == 2 && args[0].equals("--unix")) {
+                servidor = unix(Paths.get(args[1]));
+            } else if (args.length == 2 && args[0].equals("--porta")) {
+                servidor = tcp(Integer.parseInt(args[1]));
+            } else {
+                servidor = tcp(7070);
+            }
+            System.out.println("Servidor pronto: " + servidor.canal.getLocalAddress());
+            servidor.executar();
+        }
+        catch(Exception e) { System.out.println(e.getMessage());}
+    }
+}
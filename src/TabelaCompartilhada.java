@@ -0,0 +1,198 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.UnaryOperator;
+
+/**
+ * Tabela de símbolos que pode ser compartilhada por analisadores em threads
+ * diferentes.
+ *
+ * Cada variável tem seu próprio slot ({@link Variavel}) com um número de
+ * versão, como num seqlock: a versão é par quando o slot está livre e ímpar
+ * enquanto alguém escreve nele. Leituras não travam nada (releem se a versão
+ * mudou no meio) e cada escrita trava só o slot da variável, então threads
+ * que mexem em variáveis diferentes não disputam nada além do
+ * ConcurrentHashMap dos nomes, consultado uma vez por nome.
+ *
+ * Como Map (por exemplo em parser.simbolos), cada get e put é atômico por si.
+ * Para que um comando inteiro, como x = x + 1, seja uma leitura-modificação-
+ * escrita atômica, avalie pela Programa.Maquina (AvaliadorIterativo), que
+ * valida as versões lidas e grava tudo de uma vez no fim de cada comando,
+ * repetindo o comando se outra thread escreveu antes; ou use
+ * {@link Variavel#trocar}/{@link Variavel#atualizar} diretamente.
+ *
+ * Variável não definida vale null, como no HashMap; remover uma variável só
+ * anula o valor (o slot continua, com a versão avançando).
+ */
+public final class TabelaCompartilhada extends AbstractMap<String, Number> {
+
+    private final ConcurrentHashMap<String, Variavel> variaveis = new ConcurrentHashMap<String, Variavel>();
+    private final AtomicInteger criadas = new AtomicInteger();
+
+    /** Slot de uma variável, criado no primeiro uso do nome. */
+    public static final class Variavel {
+        private static final AtomicLongFieldUpdater<Variavel> VERSAO =
+            AtomicLongFieldUpdater.newUpdater(Variavel.class, "versao");
+
+        final String nome;
+        final int ordem;                // ordem de criação: trava-se sempre em ordem crescente
+        private volatile long versao;   // ímpar: escrita em andamento
+        private volatile Number valor;
+
+        Variavel(String nome, int ordem) {
+            this.nome = nome;
+            this.ordem = ordem;
+        }
+
+        public String nome() {
+            return nome;
+        }
+
+        /** Versão atual sem escrita em andamento (espera se houver uma). */
+        public long versao() {
+            long v;
+            while (((v = versao) & 1) != 0) {
+                Thread.onSpinWait();
+            }
+            return v;
+        }
+
+        /** Valor consistente com alguma versão; null se não definida. */
+        public Number ler() {
+            while (true) {
+                long v = versao();
+                Number n = valor;
+                if (versao == v) {
+                    return n;
+                }
+            }
+        }
+
+        /**
+         * Grava novo se a versão ainda for versaoLida (obtida de {@link #versao}
+         * antes de ler o valor); devolve false se outra escrita veio antes.
+         */
+        public boolean trocar(long versaoLida, Number novo) {
+            if (!travar(versaoLida)) {
+                return false;
+            }
+            gravarELiberar(novo);
+            return true;
+        }
+
+        /** Aplica f ao valor atual atomicamente, repetindo se houver disputa; devolve o novo valor. */
+        public Number atualizar(UnaryOperator<Number> f) {
+            while (true) {
+                long v = versao();
+                Number novo = f.apply(valor);
+                if (trocar(v, novo)) {
+                    return novo;
+                }
+            }
+        }
+
+        /** Trava o slot se ele ainda estiver na versão par v. */
+        boolean travar(long v) {
+            return (v & 1) == 0 && VERSAO.compareAndSet(this, v, v + 1);
+        }
+
+        /** Trava o slot na versão que estiver, esperando escritas em andamento. */
+        long travar() {
+            while (true) {
+                long v = versao();
+                if (travar(v)) {
+                    return v;
+                }
+            }
+        }
+
+        /** Só para quem travou: grava e libera, avançando para a próxima versão par. */
+        void gravarELiberar(Number novo) {
+            valor = novo;
+            versao = versao + 1;
+        }
+
+        /** Só para quem travou: libera sem gravar, voltando à versão anterior. */
+        void liberar() {
+            versao = versao - 1;
+        }
+
+        /** Versão atual, ímpar se travado (sem esperar). */
+        long versaoAtual() {
+            return versao;
+        }
+    }
+
+    /** Slot da variável nome, criado se ainda não existir. */
+    public Variavel variavel(String nome) {
+        Variavel v = variaveis.get(nome);
+        if (v == null) {
+            v = variaveis.computeIfAbsent(nome, n -> new Variavel(n, criadas.getAndIncrement()));
+        }
+        return v;
+    }
+
+    @Override
+    public Number get(Object nome) {
+        Variavel v = variaveis.get(nome);
+        return v != null ? v.ler() : null;
+    }
+
+    @Override
+    public boolean containsKey(Object nome) {
+        return get(nome) != null;
+    }
+
+    @Override
+    public Number put(String nome, Number valor) {
+        Variavel v = variavel(nome);
+        v.travar();
+        Number antes = v.valor;
+        v.gravarELiberar(valor);
+        return antes;
+    }
+
+    @Override
+    public Number remove(Object nome) {
+        Variavel v = variaveis.get(nome);
+        return v != null ? put(v.nome, null) : null;
+    }
+
+    @Override
+    public void clear() {
+        for (Variavel v : variaveis.values()) {
+            put(v.nome, null);
+        }
+    }
+
+    /** Instantâneo das variáveis definidas (não é uma visão viva). */
+    @Override
+    public Set<Map.Entry<String, Number>> entrySet() {
+        List<Map.Entry<String, Number>> definidas = new ArrayList<Map.Entry<String, Number>>();
+        for (Variavel v : variaveis.values()) {
+            Number n = v.ler();
+            if (n != null) {
+                definidas.add(new AbstractMap.SimpleImmutableEntry<String, Number>(v.nome, n));
+            }
+        }
+        return new AbstractSet<Map.Entry<String, Number>>() {
+            @Override
+            public Iterator<Map.Entry<String, Number>> iterator() {
+                return Collections.unmodifiableList(definidas).iterator();
+            }
+
+            @Override
+            public int size() {
+                return definidas.size();
+            }
+        };
+    }
+}